@@ -0,0 +1,83 @@
+package com.haibin.calendarview;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 选中日期范围测试
+ */
+@RunWith(AndroidJUnit4.class)
+public class CalendarRangeTest {
+
+    private static Calendar create(int year, int month, int day) {
+        Calendar calendar = new Calendar();
+        calendar.setYear(year);
+        calendar.setMonth(month);
+        calendar.setDay(day);
+        return calendar;
+    }
+
+    /**
+     * 首尾、连续被拦截的日期都跳过，拦截事件每天只回调一次，回调的就是遍历返回的Calendar
+     */
+    @Test
+    public void skipExcluded() throws Exception {
+        CalendarViewDelegate delegate = new CalendarViewDelegate(InstrumentationRegistry.getTargetContext(), null);
+        DisabledDayRules rules = new DisabledDayRules();
+        rules.addDate(create(2020, 3, 1));
+        rules.addRange(create(2020, 3, 4), create(2020, 3, 5));
+        rules.addDate(create(2020, 3, 14));
+        delegate.mDisabledDayRules = rules;
+        final List<Calendar> intercepted = new ArrayList<>();
+        delegate.mCalendarInterceptListener = new CalendarView.OnCalendarInterceptListener() {
+            @Override
+            public boolean onCalendarIntercept(Calendar calendar) {
+                intercepted.add(calendar);
+                return calendar.getDay() == 10 || calendar.getDay() == 11;
+            }
+
+            @Override
+            public void onCalendarInterceptClick(Calendar calendar, boolean isClick) {
+
+            }
+        };
+        CalendarRange range = new CalendarRange(delegate,
+                CalendarUtil.toDayNumber(2020, 3, 1), CalendarUtil.toDayNumber(2020, 3, 14));
+
+        List<Calendar> calendars = range.toList();
+        List<Integer> days = new ArrayList<>();
+        for (Calendar calendar : calendars) {
+            days.add(calendar.getDay());
+            assertNotNull(calendar.getLunar());
+        }
+        assertEquals(Arrays.asList(2, 3, 6, 7, 8, 9, 12, 13), days);
+        assertEquals(10, intercepted.size());
+        assertSame(intercepted.get(0), calendars.get(0));
+
+        //2020-03-01距1970-01-01为18322天
+        assertEquals(18322, range.getStartEpochDay());
+        assertEquals(18335, range.getEndEpochDay());
+        assertEquals(8, range.size());
+        assertArrayEquals(new long[]{18322, 18325, 18326, 18331, 18332, 18335}, range.getExcludedEpochDays());
+        assertTrue(range.contains(create(2020, 3, 2)));
+        assertFalse(range.contains(create(2020, 3, 5)));
+        assertFalse(range.contains(create(2020, 3, 11)));
+        assertFalse(range.contains(create(2020, 3, 15)));
+
+        CalendarRange excluded = new CalendarRange(delegate,
+                CalendarUtil.toDayNumber(2020, 3, 4), CalendarUtil.toDayNumber(2020, 3, 5));
+        Iterator<Calendar> iterator = excluded.iterator();
+        assertFalse(iterator.hasNext());
+        assertEquals(0, excluded.size());
+    }
+}
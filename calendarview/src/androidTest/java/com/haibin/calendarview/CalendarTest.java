@@ -0,0 +1,110 @@
+package com.haibin.calendarview;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Calendar比较、哈希测试
+ */
+@SuppressWarnings("all")
+public class CalendarTest {
+
+    private static Calendar create(int year, int month, int day) {
+        Calendar calendar = new Calendar();
+        calendar.setYear(year);
+        calendar.setMonth(month);
+        calendar.setDay(day);
+        return calendar;
+    }
+
+    @Test
+    public void compareTo() throws Exception {
+        assertEquals(0, create(2019, 6, 1).compareTo(create(2019, 6, 1)));
+        assertEquals(-1, create(2019, 6, 1).compareTo(create(2019, 6, 2)));
+        assertEquals(1, create(2019, 7, 1).compareTo(create(2019, 6, 30)));
+        assertEquals(-1, create(2018, 12, 31).compareTo(create(2019, 1, 1)));
+        assertEquals(1, create(2019, 1, 1).compareTo(null));
+        assertEquals(-1, CalendarUtil.compareTo(2018, 12, 31, 2019, 1, 1));
+        assertEquals(0, CalendarUtil.compareTo(2019, 1, 1, 2019, 1, 1));
+    }
+
+    @Test
+    public void equalsAndHashCode() throws Exception {
+        Calendar calendar = create(2019, 6, 1);
+        calendar.setScheme("事");
+        assertEquals(calendar, create(2019, 6, 1));
+        assertEquals(calendar.hashCode(), create(2019, 6, 1).hashCode());
+        assertNotEquals(calendar, create(2019, 6, 2));
+        assertFalse(calendar.equals(null));
+        assertFalse(calendar.equals("20190601"));
+
+        Set<Calendar> set = new HashSet<>();
+        set.add(calendar);
+        assertTrue(set.contains(create(2019, 6, 1)));
+        assertFalse(set.contains(create(2019, 6, 2)));
+    }
+
+    @Test
+    public void preAndNextCalendar() throws Exception {
+        assertEquals(create(2018, 12, 31), CalendarUtil.getPreCalendar(create(2019, 1, 1)));
+        assertEquals(create(2020, 2, 29), CalendarUtil.getPreCalendar(create(2020, 3, 1)));
+        assertEquals(create(2019, 3, 1), CalendarUtil.getNextCalendar(create(2019, 2, 28)));
+        assertEquals(create(2020, 1, 1), CalendarUtil.getNextCalendar(create(2019, 12, 31)));
+    }
+
+    /**
+     * 相同的多标记在日期间共享，添加自定义Scheme后转为独立列表
+     */
+    @Test
+    public void sharedSchemes() throws Exception {
+        Calendar a = create(2019, 6, 1);
+        Calendar b = create(2019, 6, 2);
+        a.addScheme(0xFF40db25, "假");
+        a.addScheme(1, 0xFFe69138, "事", "other");
+        b.addScheme(0xFF40db25, "假");
+        assertTrue(a.hasScheme());
+        assertEquals(2, a.getSchemesSize());
+        assertSame(a.getSchemeAt(0), b.getSchemeAt(0));
+        assertEquals("other", a.getSchemeAt(1).getOther());
+
+        Calendar.Scheme scheme = new Calendar.Scheme(0xFF13acf0, "自");
+        b.addScheme(scheme);
+        assertNull(b.getSchemeIndexes());
+        assertEquals(2, b.getSchemes().size());
+        assertSame(scheme, b.getSchemes().get(1));
+        assertEquals(2, a.getSchemeIndexes().length);
+
+        Calendar c = create(2019, 6, 1);
+        c.copySchemes(a);
+        assertTrue(SchemeStore.isSameScheme(a, c));
+        assertFalse(SchemeStore.isSameScheme(a, b));
+        assertEquals(2, a.getSchemes().size());
+        assertTrue(SchemeStore.isSameScheme(a, c));
+    }
+
+    /**
+     * getSchemes只复制本日期，返回的Scheme可以修改，不影响其它日期
+     */
+    @Test
+    public void sharedSchemesCopyOnWrite() throws Exception {
+        Calendar a = create(2019, 6, 1);
+        Calendar b = create(2019, 6, 2);
+        a.addScheme(0xFF40db25, "假");
+        b.addScheme(0xFF40db25, "假");
+        a.getSchemes().get(0).setObj("obj");
+        assertNull(a.getSchemeIndexes());
+        assertSame(a.getSchemes(), a.getSchemes());
+
+        a.getSchemes().add(new Calendar.Scheme(0xFF13acf0, "自"));
+        assertEquals(2, a.getSchemes().size());
+        assertEquals("obj", a.getSchemes().get(0).getObj());
+        assertNotNull(b.getSchemeIndexes());
+        assertNull(b.getSchemeAt(0).getObj());
+        assertEquals(1, b.getSchemes().size());
+        assertNull(b.getSchemes().get(0).getObj());
+    }
+}
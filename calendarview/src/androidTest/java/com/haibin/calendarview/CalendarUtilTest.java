@@ -2,6 +2,8 @@ package com.haibin.calendarview;
 
 import org.junit.Test;
 
+import java.util.TimeZone;
+
 import static org.junit.Assert.*;
 
 /**
@@ -283,4 +285,36 @@ public class CalendarUtilTest {
 
         assertEquals(7,CalendarUtil.differ(calendar1,calendar2));
     }
-}
\ No newline at end of file
+
+    /**
+     * 天数计算与时区、夏令时无关
+     */
+    @Test
+    public void differIgnoresTimeZone() throws Exception {
+        TimeZone timeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Sao_Paulo"));
+            Calendar calendar1 = new Calendar();
+            calendar1.setYear(1914);
+            calendar1.setMonth(1);
+            calendar1.setDay(1);
+
+            Calendar calendar2 = new Calendar();
+            calendar2.setYear(1900);
+            calendar2.setMonth(1);
+            calendar2.setDay(1);
+
+            assertEquals(5113, CalendarUtil.differ(calendar1, calendar2));
+            assertEquals(731, CalendarUtil.getWeekCountBetweenBothCalendar(1900, 1, 1, 1914, 1, 1, 1));
+            assertEquals(731, CalendarUtil.getWeekFromCalendarStartWithMinCalendar(calendar1, 1900, 1, 1, 1));
+
+            Calendar first = new Calendar();
+            first.setYear(1913);
+            first.setMonth(12);
+            first.setDay(28);
+            assertEquals(first, CalendarUtil.getFirstCalendarStartWithMinCalendar(1900, 1, 1, 731, 1));
+        } finally {
+            TimeZone.setDefault(timeZone);
+        }
+    }
+}
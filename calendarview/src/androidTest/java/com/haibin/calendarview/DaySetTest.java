@@ -0,0 +1,47 @@
+package com.haibin.calendarview;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多选日期集合测试
+ */
+public class DaySetTest {
+
+    /**
+     * 随机添加、移除，与TreeSet一致，包括超出起始日期前后的扩展
+     */
+    @Test
+    public void addAndRemove() throws Exception {
+        int origin = CalendarUtil.toDayNumber(2020, 1, 1);
+        DaySet set = new DaySet();
+        set.setOrigin(origin);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            int day = origin - 200 + random.nextInt(1500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(day), set.remove(day));
+            } else {
+                assertEquals(expected.add(day), set.add(day));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        int[] days = set.toDayNumbers();
+        assertEquals(expected.size(), days.length);
+        int i = 0;
+        for (int day : expected) {
+            assertEquals(day, days[i++]);
+            assertTrue(set.contains(day));
+        }
+
+        DaySet restored = new DaySet();
+        restored.restore(set.getOrigin(), set.toLongArray());
+        assertEquals(set.size(), restored.size());
+        assertArrayEquals(days, restored.toDayNumbers());
+    }
+}
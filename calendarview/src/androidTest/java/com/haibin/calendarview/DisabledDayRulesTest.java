@@ -0,0 +1,56 @@
+package com.haibin.calendarview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 不可用日期规则测试
+ */
+public class DisabledDayRulesTest {
+
+    /**
+     * 各规则编译后的月掩码与逐日判断一致，规则修改后缓存失效
+     */
+    @Test
+    public void isDisabled() throws Exception {
+        DisabledDayRules rules = new DisabledDayRules();
+        rules.addWeekdays(0, 6);
+        rules.addYearly(10, 1);
+        rules.addMonthly(15);
+        rules.addRange(newCalendar(2020, 2, 27), newCalendar(2020, 3, 3));
+        rules.disableBefore(newCalendar(2020, 1, 10));
+
+        for (int month = 1; month <= 12; month++) {
+            for (int day = 1; day <= CalendarUtil.getMonthDaysCount(2020, month); day++) {
+                int week = CalendarUtil.getWeekFormDate(2020, month, day);
+                int dayNumber = CalendarUtil.toDayNumber(2020, month, day);
+                boolean expected = week == 0 || week == 6 ||
+                        (month == 10 && day == 1) ||
+                        day == 15 ||
+                        (dayNumber >= CalendarUtil.toDayNumber(2020, 2, 27) &&
+                                dayNumber <= CalendarUtil.toDayNumber(2020, 3, 3)) ||
+                        dayNumber < CalendarUtil.toDayNumber(2020, 1, 10);
+                assertEquals(month + "/" + day, expected, rules.isDisabled(2020, month, day));
+            }
+        }
+
+        //2020年3月4日为星期三
+        assertFalse(rules.isDisabled(2020, 3, 4));
+        rules.addDate(newCalendar(2020, 3, 4));
+        assertTrue(rules.isDisabled(2020, 3, 4));
+        assertFalse(rules.isDisabled(2020, 3, 0));
+        assertFalse(rules.isDisabled(2020, 3, 32));
+        assertFalse(rules.isDisabled(new Calendar()));
+        rules.clear();
+        assertFalse(rules.isDisabled(2020, 3, 7));
+    }
+
+    private static Calendar newCalendar(int year, int month, int day) {
+        Calendar calendar = new Calendar();
+        calendar.setYear(year);
+        calendar.setMonth(month);
+        calendar.setDay(day);
+        return calendar;
+    }
+}
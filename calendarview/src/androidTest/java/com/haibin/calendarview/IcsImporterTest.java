@@ -0,0 +1,98 @@
+package com.haibin.calendarview;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * iCalendar导入解析测试
+ */
+public class IcsImporterTest {
+
+    /**
+     * 全天事件、折叠行、RRULE展开与EXDATE
+     */
+    @Test
+    public void parse() throws Exception {
+        String ics = "BEGIN:VCALENDAR\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART;VALUE=DATE:20200302\r\n" +
+                "DTEND;VALUE=DATE:20200305\r\n" +
+                "SUMMARY:出\r\n" +
+                " 差\r\n" +
+                "END:VEVENT\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART;VALUE=DATE:20200301\r\n" +
+                "RRULE:FREQ=WEEKLY;BYDAY=MO,WE;COUNT=4\r\n" +
+                "EXDATE;VALUE=DATE:20200304\r\n" +
+                "SUMMARY:会议\r\n" +
+                "END:VEVENT\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART;VALUE=DATE:20200101\r\n" +
+                "RRULE:FREQ=MONTHLY;BYDAY=-1FR;UNTIL=20200401\r\n" +
+                "SUMMARY:月末\r\n" +
+                "END:VEVENT\r\n" +
+                "END:VCALENDAR\r\n";
+        final List<String> days = new ArrayList<>();
+        IcsImporter importer = new IcsImporter(null, null, 0,
+                CalendarUtil.toDayNumber(1900, 1, 1), CalendarUtil.toDayNumber(2099, 12, 31), null);
+        importer.parse(new BufferedReader(new StringReader(ics)), new IcsImporter.OnEventDayListener() {
+            @Override
+            public void onEventDay(int dayNumber, String summary) {
+                Calendar calendar = CalendarUtil.fromDayNumber(dayNumber);
+                days.add(calendar.getMonth() + "/" + calendar.getDay() + summary);
+            }
+        });
+        assertEquals(
+                "[3/2出差, 3/3出差, 3/4出差, 3/2会议, 3/9会议, 3/11会议, 1/31月末, 2/28月末, 3/27月末]",
+                days.toString());
+    }
+
+    /**
+     * YEARLY、MONTHLY的BYMONTH、BYDAY、BYMONTHDAY，不支持的BYxxx只保留第一次
+     */
+    @Test
+    public void byMonth() throws Exception {
+        String ics = "BEGIN:VCALENDAR\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART;VALUE=DATE:20190101\r\n" +
+                "RRULE:FREQ=YEARLY;BYMONTH=5;BYDAY=2SU;COUNT=2\r\n" +
+                "SUMMARY:母亲节\r\n" +
+                "END:VEVENT\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART;VALUE=DATE:20200101\r\n" +
+                "RRULE:FREQ=YEARLY;BYDAY=FR;BYMONTHDAY=13;UNTIL=20201231\r\n" +
+                "SUMMARY:黑色星期五\r\n" +
+                "END:VEVENT\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART;VALUE=DATE:20200115\r\n" +
+                "RRULE:FREQ=MONTHLY;BYMONTH=1,7;COUNT=3\r\n" +
+                "SUMMARY:季\r\n" +
+                "END:VEVENT\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART;VALUE=DATE:20200101\r\n" +
+                "RRULE:FREQ=MONTHLY;BYDAY=MO,TU;BYSETPOS=1\r\n" +
+                "SUMMARY:首\r\n" +
+                "END:VEVENT\r\n" +
+                "END:VCALENDAR\r\n";
+        final List<String> days = new ArrayList<>();
+        IcsImporter importer = new IcsImporter(null, null, 0,
+                CalendarUtil.toDayNumber(1900, 1, 1), CalendarUtil.toDayNumber(2099, 12, 31), null);
+        importer.parse(new BufferedReader(new StringReader(ics)), new IcsImporter.OnEventDayListener() {
+            @Override
+            public void onEventDay(int dayNumber, String summary) {
+                Calendar calendar = CalendarUtil.fromDayNumber(dayNumber);
+                days.add(calendar.getYear() + "/" + calendar.getMonth() + "/" + calendar.getDay() + summary);
+            }
+        });
+        assertEquals(
+                "[2019/5/12母亲节, 2020/5/10母亲节, 2020/3/13黑色星期五, 2020/11/13黑色星期五, " +
+                        "2020/1/15季, 2020/7/15季, 2021/1/15季, 2020/1/1首]",
+                days.toString());
+    }
+}
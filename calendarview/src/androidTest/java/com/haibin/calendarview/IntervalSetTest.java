@@ -0,0 +1,69 @@
+package com.haibin.calendarview;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多范围选择区间集合测试
+ */
+public class IntervalSetTest {
+
+    /**
+     * 重叠、相邻的区间合并
+     */
+    @Test
+    public void merge() throws Exception {
+        IntervalSet set = new IntervalSet();
+        set.add(10, 12);
+        set.add(20, 25);
+        set.add(13, 14);
+        assertEquals(2, set.size());
+        assertEquals(10, set.getStart(0));
+        assertEquals(14, set.getEnd(0));
+
+        set.add(30, 31);
+        set.add(1, 2);
+        set.add(12, 30);
+        assertEquals(2, set.size());
+        assertEquals(1, set.getStart(0));
+        assertEquals(2, set.getEnd(0));
+        assertEquals(10, set.getStart(1));
+        assertEquals(31, set.getEnd(1));
+
+        assertEquals(-1, set.indexOf(5));
+        assertEquals(1, set.indexOf(31));
+        set.remove(0);
+        assertEquals(0, set.indexOf(10));
+    }
+
+    /**
+     * 随机添加，与逐日标记一致
+     */
+    @Test
+    public void indexOf() throws Exception {
+        IntervalSet set = new IntervalSet();
+        boolean[] expected = new boolean[1000];
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            int start = random.nextInt(990);
+            int end = start + random.nextInt(10);
+            set.add(start, end);
+            for (int day = start; day <= end; day++) {
+                expected[day] = true;
+            }
+        }
+        for (int i = 1; i < set.size(); i++) {
+            assertTrue(set.getStart(i) > set.getEnd(i - 1) + 1);
+        }
+        for (int day = 0; day < expected.length; day++) {
+            int index = set.indexOf(day);
+            assertEquals(expected[day], index >= 0);
+            if (index >= 0) {
+                assertTrue(set.getStart(index) <= day && set.getEnd(index) >= day);
+            }
+        }
+    }
+}
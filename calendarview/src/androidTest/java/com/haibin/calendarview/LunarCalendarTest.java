@@ -46,6 +46,20 @@ public class LunarCalendarTest {
         assertEquals(30,d);
     }
 
+    /**
+     * 节日字符串解析为按日期下标的数组，无日期的项忽略，重复日期取第一个
+     *
+     * @throws Exception Exception
+     */
+    @Test
+    public void parseFestivals() throws Exception {
+        String[] days = LunarCalendar.parseFestivals(new String[]{"除夕", "0101春节", "0928教师节", "0928重复", "1231跨年"});
+        assertEquals("春节", days[1 * 32 + 1]);
+        assertEquals("教师节", days[9 * 32 + 28]);
+        assertEquals("跨年", days[12 * 32 + 31]);
+        assertEquals(null, days[1 * 32 + 2]);
+    }
+
     /**
      * 测试每年冬至是具体几日
      *
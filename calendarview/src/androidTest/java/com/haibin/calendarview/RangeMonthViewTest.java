@@ -0,0 +1,104 @@
+package com.haibin.calendarview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.os.Debug;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 范围选择月视图绘制判断测试
+ */
+@RunWith(AndroidJUnit4.class)
+public class RangeMonthViewTest {
+
+    private static Calendar create(int year, int month, int day) {
+        Calendar calendar = new Calendar();
+        calendar.setYear(year);
+        calendar.setMonth(month);
+        calendar.setDay(day);
+        return calendar;
+    }
+
+    /**
+     * 绘制每个日期时调用的isCalendarSelected、isSelectPreCalendar、isSelectNextCalendar，
+     * 包括前后日期的updateCalendarScheme，预热后不应分配任何对象
+     */
+    @Test
+    public void drawCheckAllocatesNothing() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        CalendarViewDelegate delegate = new CalendarViewDelegate(context, null);
+        delegate.setSelectMode(CalendarViewDelegate.SELECT_MODE_RANGE);
+        Calendar scheme = create(2019, 6, 15);
+        scheme.setScheme("事");
+        delegate.mSchemeStore.put(scheme);
+        delegate.mSelectedStartRangeCalendar = create(2019, 6, 10);
+        delegate.mSelectedEndRangeCalendar = create(2019, 6, 20);
+
+        TestRangeMonthView view = new TestRangeMonthView(context);
+        view.setup(delegate);
+
+        Calendar[] items = new Calendar[42];
+        items[0] = create(2019, 5, 26);
+        for (int i = 1; i < items.length; i++) {
+            items[i] = CalendarUtil.getNextCalendar(items[i - 1]);
+        }
+        check(view, items);
+
+        int selected = 0;
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        for (int n = 0; n < 1000; n++) {
+            selected += check(view, items);
+        }
+        int count = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        assertEquals(0, count);
+        assertEquals(1000 * 11 * 3, selected);
+    }
+
+    private static int check(TestRangeMonthView view, Calendar[] items) {
+        int selected = 0;
+        for (Calendar calendar : items) {
+            if (view.isCalendarSelected(calendar)) {
+                selected++;
+            }
+            if (view.isSelectPreCalendar(calendar)) {
+                selected++;
+            }
+            if (view.isSelectNextCalendar(calendar)) {
+                selected++;
+            }
+        }
+        return selected;
+    }
+
+    private static final class TestRangeMonthView extends RangeMonthView {
+
+        TestRangeMonthView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected boolean onDrawSelected(Canvas canvas, Calendar calendar, int x, int y, boolean hasScheme,
+                                         boolean isSelectedPre, boolean isSelectedNext) {
+            return false;
+        }
+
+        @Override
+        protected void onDrawScheme(Canvas canvas, Calendar calendar, int x, int y, boolean isSelected) {
+
+        }
+
+        @Override
+        protected void onDrawText(Canvas canvas, Calendar calendar, int x, int y, boolean hasScheme, boolean isSelected) {
+
+        }
+    }
+}
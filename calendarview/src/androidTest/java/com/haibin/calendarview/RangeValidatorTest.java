@@ -0,0 +1,84 @@
+package com.haibin.calendarview;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 范围选择校验测试
+ */
+@RunWith(AndroidJUnit4.class)
+public class RangeValidatorTest {
+
+    private static Calendar create(int year, int month, int day) {
+        Calendar calendar = new Calendar();
+        calendar.setYear(year);
+        calendar.setMonth(month);
+        calendar.setDay(day);
+        return calendar;
+    }
+
+    /**
+     * 按月掩码统计与逐日统计一致，拦截事件只回调校验区间涉及的月份
+     */
+    @Test
+    public void count() throws Exception {
+        CalendarViewDelegate delegate = new CalendarViewDelegate(InstrumentationRegistry.getTargetContext(), null);
+        delegate.setRange(2020, 1, 1, 2020, 12, 31);
+        final DisabledDayRules rules = new DisabledDayRules();
+        rules.addMonthly(15);
+        rules.addRange(create(2020, 2, 27), create(2020, 3, 3));
+        delegate.mDisabledDayRules = rules;
+        final Set<Integer> calledMonths = new HashSet<>();
+        delegate.mCalendarInterceptListener = new CalendarView.OnCalendarInterceptListener() {
+            @Override
+            public boolean onCalendarIntercept(Calendar calendar) {
+                assertFalse(rules.isDisabled(calendar));
+                calledMonths.add(calendar.getMonth());
+                return CalendarUtil.toDayNumber(calendar) % 11 == 0;
+            }
+
+            @Override
+            public void onCalendarInterceptClick(Calendar calendar, boolean isClick) {
+
+            }
+        };
+        RangeValidator validator = new RangeValidator(delegate);
+        assertEquals(3, validator.countDisabled(CalendarUtil.toDayNumber(2020, 3, 1),
+                CalendarUtil.toDayNumber(2020, 3, 3)));
+        assertEquals(1, calledMonths.size());
+
+        int origin = CalendarUtil.toDayNumber(2020, 1, 1);
+        for (int start = origin - 5; start < origin + 370; start += 7) {
+            for (int end = start; end < start + 40; end++) {
+                int expectedDisabled = 0, expectedBusiness = 0;
+                for (int day = Math.max(start, origin); day <= Math.min(end, origin + 365); day++) {
+                    Calendar calendar = CalendarUtil.fromDayNumber(day);
+                    if (rules.isDisabled(calendar) || day % 11 == 0) {
+                        expectedDisabled++;
+                        continue;
+                    }
+                    int week = (day + 3) % 7;
+                    if (week != 0 && week != 6) {
+                        expectedBusiness++;
+                    }
+                }
+                assertEquals(expectedDisabled, validator.countDisabled(start, end));
+                assertEquals(expectedBusiness, validator.countBusinessDays(start, end));
+            }
+        }
+        assertEquals(12, calledMonths.size());
+
+        calledMonths.clear();
+        validator.clearIntercepts();
+        validator.countDisabled(CalendarUtil.toDayNumber(2020, 5, 10), CalendarUtil.toDayNumber(2020, 6, 10));
+        assertEquals(2, calledMonths.size());
+    }
+}
@@ -0,0 +1,83 @@
+package com.haibin.calendarview;
+
+import android.util.SparseArray;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * 标记文件读写测试
+ */
+public class SchemeFileTest {
+
+    /**
+     * 写入后映射读取，文本、颜色、多标记一致
+     */
+    @Test
+    public void writeAndOpen() throws Exception {
+        SparseArray<Calendar> days = new SparseArray<>();
+        for (int day = 1; day <= 28; day++) {
+            Calendar calendar = CalendarUtil.fromDayNumber(CalendarUtil.toDayNumber(2020, 2, day));
+            calendar.setScheme(day % 2 == 0 ? "假" : null);
+            calendar.setSchemeColor(0xFF000000 | day);
+            if (day % 3 == 0) {
+                calendar.addScheme(1, 0xFF40DB25, "多", "其它");
+                calendar.addScheme(0xFFE69138, "记");
+            }
+            days.put(calendar.getDayKey(), calendar);
+        }
+        File file = File.createTempFile("scheme", ".bin");
+        try {
+            SchemeFile.write(file, days);
+            SchemeFile schemeFile = SchemeFile.open(file);
+            assertEquals(28, schemeFile.size());
+            assertNull(schemeFile.get(Calendar.toDayKey(2020, 3, 1)));
+            for (int i = 0; i < days.size(); i++) {
+                Calendar expected = days.valueAt(i);
+                Calendar actual = schemeFile.get(days.keyAt(i));
+                assertEquals(expected, actual);
+                assertTrue(SchemeStore.isSameScheme(expected, actual));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 打开文件后每月计数包括文件中的标记，快照中的同一天覆盖文件，移除的日期不计
+     */
+    @Test
+    public void countsIncludeFile() throws Exception {
+        SparseArray<Calendar> days = new SparseArray<>();
+        for (int day = 1; day <= 10; day++) {
+            Calendar calendar = CalendarUtil.fromDayNumber(CalendarUtil.toDayNumber(2020, 2, day));
+            calendar.setScheme("假");
+            if (day == 1) {
+                calendar.addScheme(0xFF40DB25, "多");
+                calendar.addScheme(0xFFE69138, "记");
+            }
+            days.put(calendar.getDayKey(), calendar);
+        }
+        File file = File.createTempFile("scheme", ".bin");
+        try {
+            SchemeFile.write(file, days);
+            SchemeStore store = new SchemeStore();
+            store.setFile(SchemeFile.open(file));
+            assertEquals(11, store.getMonthCount(2020, 2));
+            assertEquals(2, store.getDayCounts(2020, 2)[1]);
+            assertEquals(0, store.getMonthCount(2020, 3));
+
+            Calendar calendar = CalendarUtil.fromDayNumber(CalendarUtil.toDayNumber(2020, 2, 1));
+            calendar.setScheme("事");
+            store.put(calendar);
+            store.remove(Calendar.toDayKey(2020, 2, 2));
+            assertEquals(9, store.getMonthCount(2020, 2));
+            assertEquals(9, store.getYearCount(2020));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.haibin.calendarview;
+
+import android.util.SparseArray;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 事件标记存储测试
+ */
+@RunWith(AndroidJUnit4.class)
+public class SchemeStoreTest {
+
+    private static Calendar create(int year, int month, int day, String scheme) {
+        Calendar calendar = new Calendar();
+        calendar.setYear(year);
+        calendar.setMonth(month);
+        calendar.setDay(day);
+        calendar.setScheme(scheme);
+        return calendar;
+    }
+
+    /**
+     * 非主线程写入时回调post到主线程，等待回调完成
+     */
+    private static void waitForCallbacks() {
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    /**
+     * 已获取的快照不受之后写入影响，暂存的单日写入在读取时合并
+     */
+    @Test
+    public void copyOnWrite() throws Exception {
+        SchemeStore store = new SchemeStore();
+        Calendar a = create(2019, 6, 1, "假");
+        Calendar b = create(2019, 6, 2, "事");
+        store.put(a);
+        store.put(b);
+        assertSame(a, store.get(a.getDayKey()));
+        assertEquals(2, store.size());
+
+        SparseArray<Calendar> snapshot = store.snapshot();
+        Calendar c = create(2019, 6, 3, "记");
+        store.put(c);
+        store.put(create(2019, 6, 1, "改"));
+        assertEquals(2, snapshot.size());
+        assertSame(a, snapshot.get(a.getDayKey()));
+        assertEquals(3, store.size());
+        assertEquals("改", store.get(a.getDayKey()).getScheme());
+
+        snapshot = store.snapshot();
+        store.remove(b.getDayKey());
+        assertSame(b, snapshot.get(b.getDayKey()));
+        assertNull(store.get(b.getDayKey()));
+        assertEquals(2, store.size());
+    }
+
+    /**
+     * 整体替换后只回调新增、变化和移除的日期
+     */
+    @Test
+    public void diff() throws Exception {
+        SchemeStore store = new SchemeStore();
+        final List<Calendar> added = new ArrayList<>();
+        final List<Calendar> changed = new ArrayList<>();
+        final List<Calendar> removed = new ArrayList<>();
+        store.setOnSchemeChangeListener(new SchemeStore.OnSchemeChangeListener() {
+            @Override
+            public void onSchemeChanged(int[] dayKeys) {
+
+            }
+
+            @Override
+            public void onSchemeDiff(List<Calendar> a, List<Calendar> c, List<Calendar> r) {
+                added.addAll(a);
+                changed.addAll(c);
+                removed.addAll(r);
+            }
+        });
+        Calendar a = create(2019, 6, 1, "假");
+        Calendar b = create(2019, 6, 2, "事");
+        Map<String, Calendar> map = new HashMap<>();
+        map.put("20190601", a);
+        map.put("20190602", b);
+        store.replace(map);
+        waitForCallbacks();
+        assertEquals(2, added.size());
+        assertTrue(changed.isEmpty() && removed.isEmpty());
+
+        added.clear();
+        Calendar b2 = create(2019, 6, 2, "改");
+        Calendar c = create(2019, 6, 3, "记");
+        map.clear();
+        map.put("20190602", b2);
+        map.put("20190603", c);
+        store.replace(map);
+        waitForCallbacks();
+        assertEquals(1, added.size());
+        assertSame(c, added.get(0));
+        assertEquals(1, changed.size());
+        assertSame(b2, changed.get(0));
+        assertEquals(1, removed.size());
+        assertSame(a, removed.get(0));
+
+        added.clear();
+        changed.clear();
+        removed.clear();
+        map.put("20190602", create(2019, 6, 2, "改"));
+        store.replace(map);
+        waitForCallbacks();
+        assertTrue(added.isEmpty() && changed.isEmpty() && removed.isEmpty());
+    }
+
+    /**
+     * 每月计数随写入增量更新，整月移除后为0
+     */
+    @Test
+    public void counts() throws Exception {
+        SchemeStore store = new SchemeStore();
+        Calendar a = create(2019, 6, 1, null);
+        a.addScheme(0xFF40db25, "假");
+        a.addScheme(0xFFe69138, "事");
+        store.put(a);
+        assertEquals(2, store.getMonthCount(2019, 6));
+        assertEquals(2, store.getDayCounts(2019, 6)[1]);
+
+        Map<String, Calendar> map = new HashMap<>();
+        map.put("20190601", a);
+        map.put("20190615", create(2019, 6, 15, "记"));
+        map.put("20190701", create(2019, 7, 1, "记"));
+        store.replace(map);
+        assertEquals(3, store.getMonthCount(2019, 6));
+        assertEquals(1, store.getDayCounts(2019, 6)[15]);
+        assertEquals(1, store.getMonthCount(2019, 7));
+        assertEquals(4, store.getYearCount(2019));
+
+        map.clear();
+        map.put("20190601", null);
+        map.put("20190602", create(2019, 6, 2, "新"));
+        store.putAll(map);
+        assertEquals(0, store.getDayCounts(2019, 6)[1]);
+        assertEquals(2, store.getMonthCount(2019, 6));
+
+        store.remove(Calendar.toDayKey(2019, 6, 2));
+        store.remove(Calendar.toDayKey(2019, 6, 15));
+        assertNull(store.getDayCounts(2019, 6));
+        assertEquals(0, store.getMonthCount(2019, 6));
+        assertEquals(1, store.getYearCount(2019));
+
+        store.clear();
+        assertEquals(0, store.getYearCount(2019));
+        assertTrue(store.isEmpty());
+    }
+}
@@ -14,4 +14,23 @@ public class SolarTermUtilTest {
         SolarTermUtil.getSolarTerms(2017);
     }
 
+    /**
+     * 节气日期表与天文算法结果一致
+     */
+    @Test
+    public void solarTermTable() throws Exception {
+        for (int year = 1900; year <= 2099; year++) {
+            String[] table = SolarTermUtil.getSolarTerms(year);
+            String[] astronomy = SolarTermUtil.getSolarTermsByAstronomy(year);
+            for (int i = 0; i < 24; i++) {
+                assertEquals(astronomy[i].substring(0, 8), table[i].substring(0, 8));
+                int month = Integer.parseInt(table[i].substring(4, 6));
+                int day = Integer.parseInt(table[i].substring(6, 8));
+                assertEquals((i + 21) % 24, SolarTermUtil.getSolarTermIndex(year, month, day));
+            }
+        }
+        assertEquals(-1, SolarTermUtil.getSolarTermIndex(2017, 6, 1));
+        assertEquals(-1, SolarTermUtil.getSolarTermIndex(2150, 6, 1));
+    }
+
 }
\ No newline at end of file
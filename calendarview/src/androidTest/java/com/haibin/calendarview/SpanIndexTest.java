@@ -0,0 +1,93 @@
+package com.haibin.calendarview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 跨天事件区间索引测试
+ */
+public class SpanIndexTest {
+
+    /**
+     * 查询结果与逐个比较一致，且按开始日期有序
+     */
+    @Test
+    public void query() throws Exception {
+        Random random = new Random(7);
+        int base = CalendarUtil.toDayNumber(2020, 1, 1);
+        List<CalendarSpan> spans = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int start = base + random.nextInt(1000);
+            int end = start + random.nextInt(i % 10 == 0 ? 200 : 10);
+            spans.add(new CalendarSpan(CalendarUtil.fromDayNumber(start), CalendarUtil.fromDayNumber(end), 0, null));
+        }
+        SpanIndex index = SpanIndex.build(spans);
+        for (int q = 0; q < 200; q++) {
+            int start = base + random.nextInt(1100) - 50;
+            int end = start + random.nextInt(42);
+            List<Integer> result = new ArrayList<>();
+            index.query(start, end, result);
+            int expected = 0;
+            for (CalendarSpan span : spans) {
+                if (CalendarUtil.toDayNumber(span.getStart()) <= end && CalendarUtil.toDayNumber(span.getEnd()) >= start) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, result.size());
+            for (int i = 1; i < result.size(); i++) {
+                assertTrue(result.get(i - 1) < result.get(i));
+            }
+        }
+    }
+
+    /**
+     * 跨行的事件泳道不变，重叠的事件不在同一泳道
+     */
+    @Test
+    public void layout() throws Exception {
+        List<CalendarSpan> spans = new ArrayList<>();
+        spans.add(newSpan(2020, 3, 2, 2020, 3, 12));
+        spans.add(newSpan(2020, 3, 4, 2020, 3, 5));
+        spans.add(newSpan(2020, 3, 6, 2020, 3, 8));
+        spans.add(newSpan(2020, 3, 20, 2020, 3, 1));
+        SpanIndex index = SpanIndex.build(spans);
+        assertEquals(3, index.size());
+
+        //2020年3月1日为星期日
+        List<SpanIndex.Segment> segments = index.layout(CalendarUtil.toDayNumber(2020, 3, 1), 6);
+        assertEquals(5, segments.size());
+
+        SpanIndex.Segment first = segments.get(0);
+        assertEquals(0, first.row);
+        assertEquals(1, first.startColumn);
+        assertEquals(6, first.endColumn);
+        assertEquals(0, first.lane);
+        assertTrue(first.isStart);
+        assertFalse(first.isEnd);
+
+        SpanIndex.Segment second = segments.get(1);
+        assertEquals(1, second.row);
+        assertEquals(0, second.startColumn);
+        assertEquals(4, second.endColumn);
+        assertEquals(0, second.lane);
+        assertFalse(second.isStart);
+        assertTrue(second.isEnd);
+
+        //3月6日的事件在3月5日的事件结束后复用泳道1，并跨到第二行
+        for (int i = 2; i < 5; i++) {
+            assertEquals(1, segments.get(i).lane);
+        }
+        assertEquals(1, segments.get(4).row);
+        assertEquals(0, segments.get(4).endColumn);
+    }
+
+    private static CalendarSpan newSpan(int y1, int m1, int d1, int y2, int m2, int d2) {
+        return new CalendarSpan(CalendarUtil.fromDayNumber(CalendarUtil.toDayNumber(y1, m1, d1)),
+                CalendarUtil.fromDayNumber(CalendarUtil.toDayNumber(y2, m2, d2)), 0, null);
+    }
+}
@@ -18,6 +18,10 @@ package com.haibin.calendarview;
 import android.annotation.SuppressLint;
 import android.content.Context;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * 月视图基础控件,可自由继承实现
  * 可通过此扩展各种视图如：MonthView、RangeMonthView、MultiMonthView
@@ -53,6 +57,11 @@ public abstract class BaseMonthView extends BaseView {
      */
     protected int mNextDiff;
 
+    /**
+     * 日历项复用池，切换月份时原地更新，避免每次创建42个Calendar
+     */
+    private final Calendar[] mCalendarPool = new Calendar[42];
+
     public BaseMonthView(Context context) {
         super(context);
     }
@@ -82,7 +91,10 @@ public abstract class BaseMonthView extends BaseView {
         int preDiff = CalendarUtil.getMonthViewStartDiff(mYear, mMonth, mDelegate.getWeekStart());
         int monthDayCount = CalendarUtil.getMonthDaysCount(mYear, mMonth);
 
-        mItems = CalendarUtil.initCalendarForMonthView(mYear, mMonth, mDelegate.getCurrentDay(), mDelegate.getWeekStart());
+        if (mItems == null) {
+            mItems = new ArrayList<>(mCalendarPool.length);
+        }
+        mDelegate.mMonthModelCache.fillMonth(mDelegate, mYear, mMonth, mCalendarPool, mItems);
 
         if (mItems.contains(mDelegate.getCurrentDay())) {
             mCurrentItem = mItems.indexOf(mDelegate.getCurrentDay());
@@ -91,8 +103,7 @@ public abstract class BaseMonthView extends BaseView {
         }
 
         if (mCurrentItem > 0 &&
-                mDelegate.mCalendarInterceptListener != null &&
-                mDelegate.mCalendarInterceptListener.onCalendarIntercept(mDelegate.mSelectedCalendar)) {
+                mDelegate.isCalendarIntercept(mDelegate.mSelectedCalendar)) {
             mCurrentItem = -1;
         }
 
@@ -102,9 +113,15 @@ public abstract class BaseMonthView extends BaseView {
             mLineCount = (preDiff + monthDayCount + mNextDiff) / 7;
         }
         addSchemesFromMap();
+        layoutSpans();
         invalidate();
     }
 
+    @Override
+    int getSpanRowCount() {
+        return mLineCount;
+    }
+
     /**
      * 获取点击选中的日期
      *
@@ -120,11 +137,23 @@ public abstract class BaseMonthView extends BaseView {
         }
         int indexY = (int) mY / mItemHeight;
         int position = indexY * 7 + indexX;// 选择项
-        if (position >= 0 && position < mItems.size())
+        if (position >= 0 && position < mItems.size()) {
+            mCalendarPool[position] = null;//点击的日期会被外部持有，不再复用
             return mItems.get(position);
+        }
         return null;
     }
 
+    /**
+     * 当前日历项交给外部持有，之后不再复用这些Calendar
+     *
+     * @return 当前日历项的副本
+     */
+    final List<Calendar> detachItems() {
+        Arrays.fill(mCalendarPool, null);
+        return new ArrayList<>(mItems);
+    }
+
     /**
      * 记录已经选择的日期
      *
@@ -143,6 +172,7 @@ public abstract class BaseMonthView extends BaseView {
                 mDelegate.getWeekStart(),mDelegate.getMonthViewShowMode());
         mHeight = CalendarUtil.getMonthViewHeight(mYear, mMonth, mItemHeight, mDelegate.getWeekStart(),
                 mDelegate.getMonthViewShowMode());
+        layoutSpans();
         invalidate();
     }
 
@@ -17,15 +17,16 @@ package com.haibin.calendarview;
 
 
 import android.content.Context;
+import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 
 import androidx.annotation.Nullable;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -107,6 +108,11 @@ public abstract class BaseView extends View implements View.OnClickListener, Vie
      */
     List<Calendar> mItems;
 
+    /**
+     * 跨天事件在本页各行的线段，绑定日期时计算一次
+     */
+    List<SpanIndex.Segment> mSpanSegments = Collections.emptyList();
+
     /**
      * 每一项的高度
      */
@@ -289,23 +295,17 @@ public abstract class BaseView extends View implements View.OnClickListener, Vie
      * 添加事件标记，来自Map
      */
     final void addSchemesFromMap() {
-        if (mDelegate.mSchemeDatesMap == null || mDelegate.mSchemeDatesMap.size() == 0) {
-            return;
-        }
-        for (Calendar a : mItems) {
-            if (mDelegate.mSchemeDatesMap.containsKey(a.toString())) {
-                Calendar d = mDelegate.mSchemeDatesMap.get(a.toString());
-                if(d == null){
-                    continue;
-                }
-                a.setScheme(TextUtils.isEmpty(d.getScheme()) ? mDelegate.getSchemeText() : d.getScheme());
-                a.setSchemeColor(d.getSchemeColor());
-                a.setSchemes(d.getSchemes());
-            } else {
-                a.setScheme("");
-                a.setSchemeColor(0);
-                a.setSchemes(null);
-            }
+        mDelegate.addSchemesFromMap(mItems);
+    }
+
+    /**
+     * 只更新指定日期的标记，不包含这些日期则不重绘
+     *
+     * @param dayKeys 有序的Calendar.getDayKey()
+     */
+    final void updateSchemes(int[] dayKeys) {
+        if (mDelegate.updateSchemes(mItems, dayKeys)) {
+            invalidate();
         }
     }
 
@@ -347,6 +347,67 @@ public abstract class BaseView extends View implements View.OnClickListener, Vie
         // TODO: 2017/11/16
     }
 
+    /**
+     * 计算本页跨天事件的泳道和线段
+     */
+    final void layoutSpans() {
+        SpanIndex index = mDelegate.mSpanIndex;
+        if (index.size() == 0 || mItems == null || mItems.size() == 0) {
+            mSpanSegments = Collections.emptyList();
+            return;
+        }
+        mSpanSegments = index.layout(CalendarUtil.toDayNumber(mItems.get(0)), getSpanRowCount());
+    }
+
+    /**
+     * 跨天事件更新
+     */
+    final void updateSpans() {
+        layoutSpans();
+        invalidate();
+    }
+
+    /**
+     * 参与跨天事件计算的行数
+     *
+     * @return 行数
+     */
+    int getSpanRowCount() {
+        return 1;
+    }
+
+    /**
+     * 绘制跨天事件，每个事件在每行只回调一次
+     *
+     * @param canvas canvas
+     */
+    protected final void drawSpans(Canvas canvas) {
+        for (SpanIndex.Segment segment : mSpanSegments) {
+            int x = segment.startColumn * mItemWidth + mDelegate.getCalendarPadding();
+            int y = segment.row * mItemHeight;
+            int width = (segment.endColumn - segment.startColumn + 1) * mItemWidth;
+            onDrawSpan(canvas, segment.span, x, y, width, segment.lane, segment.isStart, segment.isEnd);
+        }
+    }
+
+    /**
+     * 绘制跨天事件在一行内的线段，在日期之前绘制，没有需要可忽略不实现
+     * 同一事件在一页内的泳道不变，可以据此计算线段的纵向位置
+     *
+     * @param canvas  canvas
+     * @param span    跨天事件
+     * @param x       线段起始日期的x
+     * @param y       所在行的y
+     * @param width   线段宽度
+     * @param lane    泳道，0在最上
+     * @param isStart 是否为事件第一天，否则延续自上一行
+     * @param isEnd   是否为事件最后一天，否则延续到下一行
+     */
+    protected void onDrawSpan(Canvas canvas, CalendarSpan span, int x, int y, int width,
+                              int lane, boolean isStart, boolean isEnd) {
+
+    }
+
     /**
      * 是否是选中的
      *
@@ -361,7 +422,7 @@ public abstract class BaseView extends View implements View.OnClickListener, Vie
      * 更新事件
      */
     final void update() {
-        if (mDelegate.mSchemeDatesMap == null || mDelegate.mSchemeDatesMap.size() == 0) {//清空操作
+        if (!mDelegate.hasSchemes()) {//清空操作
             removeSchemes();
             invalidate();
             return;
@@ -372,14 +433,13 @@ public abstract class BaseView extends View implements View.OnClickListener, Vie
 
 
     /**
-     * 是否拦截日期，此设置续设置mCalendarInterceptListener
+     * 是否拦截日期，此设置续设置DisabledDayRules或mCalendarInterceptListener
      *
      * @param calendar calendar
      * @return 是否拦截日期
      */
     protected final boolean onCalendarIntercept(Calendar calendar) {
-        return mDelegate.mCalendarInterceptListener != null &&
-                mDelegate.mCalendarInterceptListener.onCalendarIntercept(calendar);
+        return mDelegate.isCalendarIntercept(calendar);
     }
 
     /**
@@ -402,6 +462,16 @@ public abstract class BaseView extends View implements View.OnClickListener, Vie
      */
     protected abstract void onDestroy();
 
+    /**
+     * 回收复用前重置点击状态
+     */
+    final void resetState() {
+        mX = 0;
+        mY = 0;
+        isClick = true;
+        mCurrentItem = -1;
+    }
+
     /**
      * 初始化画笔相关
      */
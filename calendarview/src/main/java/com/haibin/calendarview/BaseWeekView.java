@@ -34,8 +34,16 @@ public abstract class BaseWeekView extends BaseView {
      * @param calendar calendar
      */
     final void setup(Calendar calendar) {
-        mItems = CalendarUtil.initCalendarForWeekView(calendar, mDelegate, mDelegate.getWeekStart());
+        int index = CalendarUtil.getMonthViewStartDiff(calendar.getYear(), calendar.getMonth(), mDelegate.getWeekStart()) +
+                calendar.getDay() - 1;
+        if (index % 7 == 0) {
+            //周的第一天与月视图的行对齐，可直接从月份缓存中取
+            mItems = mDelegate.mMonthModelCache.getWeek(mDelegate, calendar);
+        } else {
+            mItems = CalendarUtil.initCalendarForWeekView(calendar, mDelegate, mDelegate.getWeekStart());
+        }
         addSchemesFromMap();
+        layoutSpans();
         invalidate();
     }
 
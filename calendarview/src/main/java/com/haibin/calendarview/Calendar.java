@@ -17,8 +17,11 @@ package com.haibin.calendarview;
 
 import android.text.TextUtils;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -106,6 +109,11 @@ public final class Calendar implements Serializable, Comparable<Calendar> {
      */
     private List<Scheme> schemes;
 
+    /**
+     * 共享多标记的下标，见SchemeTable，不为null时schemes为null
+     */
+    private transient int[] schemeIndexes;
+
     /**
      * 是否是周末
      */
@@ -192,48 +200,122 @@ public final class Calendar implements Serializable, Comparable<Calendar> {
     }
 
 
+    /**
+     * 通过addScheme(int, ...)添加的多标记在日期间共享，
+     * 第一次获取时复制为本日期独立、可修改的列表，之后返回同一个列表
+     *
+     * @return 多标记
+     */
     public List<Scheme> getSchemes() {
+        if (schemeIndexes != null) {
+            ensureSchemeList();
+        }
         return schemes;
     }
 
     public void setSchemes(List<Scheme> schemes) {
         this.schemes = schemes;
+        this.schemeIndexes = null;
     }
 
 
     public void addScheme(Scheme scheme) {
-        if (schemes == null) {
-            schemes = new ArrayList<>();
-        }
+        ensureSchemeList();
         schemes.add(scheme);
     }
 
     public void addScheme(int schemeColor, String scheme) {
-        if (schemes == null) {
-            schemes = new ArrayList<>();
-        }
-        schemes.add(new Scheme(schemeColor, scheme));
+        addScheme(0, schemeColor, scheme, null);
     }
 
     public void addScheme(int type, int schemeColor, String scheme) {
-        if (schemes == null) {
-            schemes = new ArrayList<>();
-        }
-        schemes.add(new Scheme(type, schemeColor, scheme));
+        addScheme(type, schemeColor, scheme, null);
     }
 
+    /**
+     * 相同的标记在所有日期间共享，只保存下标
+     *
+     * @param type        类型
+     * @param schemeColor 颜色
+     * @param scheme      文本
+     * @param other       其它
+     */
     public void addScheme(int type, int schemeColor, String scheme, String other) {
-        if (schemes == null) {
-            schemes = new ArrayList<>();
+        if (schemes == null || schemeIndexes != null) {
+            int index = SchemeTable.intern(type, schemeColor, scheme, other);
+            if (index >= 0) {
+                int[] indexes;
+                if (schemeIndexes == null) {
+                    indexes = new int[1];
+                } else {
+                    indexes = Arrays.copyOf(schemeIndexes, schemeIndexes.length + 1);
+                }
+                indexes[indexes.length - 1] = index;
+                schemeIndexes = indexes;
+                schemes = null;
+                return;
+            }
         }
+        ensureSchemeList();
         schemes.add(new Scheme(type, schemeColor, scheme, other));
     }
 
     public void addScheme(int schemeColor, String scheme, String other) {
-        if (schemes == null) {
+        addScheme(0, schemeColor, scheme, other);
+    }
+
+    /**
+     * 共享的多标记转为独立的列表，以便添加自定义的Scheme，共享的Scheme复制为可修改的副本
+     */
+    private void ensureSchemeList() {
+        if (schemeIndexes != null) {
+            schemes = new ArrayList<>(schemeIndexes.length);
+            for (int index : schemeIndexes) {
+                Scheme scheme = SchemeTable.get(index);
+                schemes.add(new Scheme(scheme.type, scheme.shcemeColor, scheme.scheme, scheme.other));
+            }
+            schemeIndexes = null;
+        } else if (schemes == null) {
             schemes = new ArrayList<>();
         }
-        schemes.add(new Scheme(schemeColor, scheme, other));
+    }
+
+    /**
+     * 共享多标记的数量，不创建列表
+     */
+    int getSchemesSize() {
+        if (schemeIndexes != null) {
+            return schemeIndexes.length;
+        }
+        return schemes == null ? 0 : schemes.size();
+    }
+
+    int[] getSchemeIndexes() {
+        return schemeIndexes;
+    }
+
+    /**
+     * 获取第index个多标记，共享的标记直接从SchemeTable读取，不创建列表，
+     * 绘制、计数等内部读取使用这个方法，返回的共享Scheme不要修改
+     *
+     * @param index 下标，小于getSchemesSize()
+     * @return 多标记
+     */
+    Scheme getSchemeAt(int index) {
+        if (schemeIndexes != null) {
+            return SchemeTable.get(schemeIndexes[index]);
+        }
+        return schemes.get(index);
+    }
+
+    /**
+     * 复制多标记，共享的下标数组不会被修改，可直接引用
+     *
+     * @param calendar calendar
+     */
+    final void copySchemes(Calendar calendar) {
+        schemeIndexes = calendar.schemeIndexes;
+        schemes = schemeIndexes == null ? calendar.schemes : null;
     }
 
     public boolean isWeekend() {
@@ -302,6 +384,9 @@ public final class Calendar implements Serializable, Comparable<Calendar> {
     }
 
     public boolean hasScheme() {
+        if (schemeIndexes != null && schemeIndexes.length != 0) {
+            return true;
+        }
         if (schemes != null && schemes.size() != 0) {
             return true;
         }
@@ -311,6 +396,27 @@ public final class Calendar implements Serializable, Comparable<Calendar> {
         return false;
     }
 
+    /**
+     * 日期的整数键，大小顺序与日期先后一致，用于代替toString()作为Map的键
+     *
+     * @return (year << 9) | (month << 5) | day
+     */
+    public int getDayKey() {
+        return toDayKey(year, month, day);
+    }
+
+    /**
+     * 日期的整数键
+     *
+     * @param year  年
+     * @param month 月
+     * @param day   日
+     * @return (year << 9) | (month << 5) | day
+     */
+    static int toDayKey(int year, int month, int day) {
+        return (year << 9) | (month << 5) | day;
+    }
+
     /**
      * 是否是相同月份
      *
@@ -331,7 +437,9 @@ public final class Calendar implements Serializable, Comparable<Calendar> {
         if (calendar == null) {
             return 1;
         }
-        return toString().compareTo(calendar.toString());
+        int key = getDayKey();
+        int other = calendar.getDayKey();
+        return key < other ? -1 : (key == other ? 0 : 1);
     }
 
     /**
@@ -366,13 +474,27 @@ public final class Calendar implements Serializable, Comparable<Calendar> {
         return calendar.getTimeInMillis();
     }
 
+    /**
+     * 只比较年月日
+     */
     @Override
     public boolean equals(Object o) {
-        if (o != null && o instanceof Calendar) {
-            if (((Calendar) o).getYear() == year && ((Calendar) o).getMonth() == month && ((Calendar) o).getDay() == day)
-                return true;
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Calendar)) {
+            return false;
         }
-        return super.equals(o);
+        Calendar calendar = (Calendar) o;
+        return calendar.year == year && calendar.month == month && calendar.day == day;
+    }
+
+    /**
+     * 与equals一致，只由年月日决定，作为HashMap的键时不要再修改年月日
+     */
+    @Override
+    public int hashCode() {
+        return getDayKey();
     }
 
     @Override
@@ -395,7 +517,17 @@ public final class Calendar implements Serializable, Comparable<Calendar> {
         setScheme(TextUtils.isEmpty(calendar.getScheme()) ?
                 defaultScheme : calendar.getScheme());
         setSchemeColor(calendar.getSchemeColor());
-        setSchemes(calendar.getSchemes());
+        copySchemes(calendar);
+    }
+
+    /**
+     * 共享的下标只在本进程有效，序列化前转为独立的列表
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        if (schemeIndexes != null) {
+            ensureSchemeList();
+        }
+        out.defaultWriteObject();
     }
 
     final void clearScheme() {
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 选中的日期范围，不创建每一天的Calendar
+ * 只保存起止日期，遍历时才创建并设置农历、标记，拦截事件直接使用遍历创建的Calendar，
+ * 被拦截的日期只在size()、getExcludedEpochDays()时统计
+ * 只在主线程使用
+ */
+public final class CalendarRange implements Iterable<Calendar> {
+
+    private static final int EPOCH_DAY = CalendarUtil.toDayNumber(1970, 1, 1);
+
+    private final CalendarViewDelegate mDelegate;
+
+    /**
+     * 起止日期，包含，CalendarUtil.toDayNumber
+     */
+    private final int mStart, mEnd;
+
+    /**
+     * 范围内被拦截的日期，有序，第一次size()或getExcludedEpochDays()时计算
+     */
+    private int[] mExcluded;
+
+    CalendarRange(CalendarViewDelegate delegate, int start, int end) {
+        mDelegate = delegate;
+        mStart = start;
+        mEnd = end;
+    }
+
+    /**
+     * 开始日期
+     *
+     * @return 开始日期
+     */
+    public Calendar getStart() {
+        return createCalendar(mStart);
+    }
+
+    /**
+     * 结束日期
+     *
+     * @return 结束日期
+     */
+    public Calendar getEnd() {
+        return createCalendar(mEnd);
+    }
+
+    /**
+     * 开始日期距1970-01-01的天数，可用于LocalDate.ofEpochDay
+     *
+     * @return 天数
+     */
+    public long getStartEpochDay() {
+        return mStart - EPOCH_DAY;
+    }
+
+    /**
+     * 结束日期距1970-01-01的天数，包含
+     *
+     * @return 天数
+     */
+    public long getEndEpochDay() {
+        return mEnd - EPOCH_DAY;
+    }
+
+    /**
+     * 范围内被拦截的日期距1970-01-01的天数，有序
+     *
+     * @return 天数
+     */
+    public long[] getExcludedEpochDays() {
+        int[] excluded = getExcluded();
+        long[] days = new long[excluded.length];
+        for (int i = 0; i < excluded.length; i++) {
+            days[i] = excluded[i] - EPOCH_DAY;
+        }
+        return days;
+    }
+
+    /**
+     * 不包括被拦截日期的天数
+     *
+     * @return 天数
+     */
+    public int size() {
+        return mEnd - mStart + 1 - getExcluded().length;
+    }
+
+    /**
+     * 是否包含某天，被拦截的日期不包含
+     *
+     * @param calendar calendar
+     * @return 是否包含
+     */
+    public boolean contains(Calendar calendar) {
+        if (calendar == null) {
+            return false;
+        }
+        int day = CalendarUtil.toDayNumber(calendar);
+        if (day < mStart || day > mEnd) {
+            return false;
+        }
+        if (mExcluded != null) {
+            return Arrays.binarySearch(mExcluded, day) < 0;
+        }
+        return createIfIncluded(day) != null;
+    }
+
+    /**
+     * 按日期先后遍历，每天只创建一次Calendar，拦截事件回调的就是返回的Calendar
+     *
+     * @return 迭代器
+     */
+    @Override
+    public Iterator<Calendar> iterator() {
+        return new Iterator<Calendar>() {
+            private int mDay = mStart;
+            private Calendar mNext;
+
+            @Override
+            public boolean hasNext() {
+                while (mNext == null && mDay <= mEnd) {
+                    mNext = createIfIncluded(mDay++);
+                }
+                return mNext != null;
+            }
+
+            @Override
+            public Calendar next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Calendar calendar = mNext;
+                mNext = null;
+                return calendar;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * 创建所有日期
+     *
+     * @return 日期列表
+     */
+    public List<Calendar> toList() {
+        List<Calendar> calendars = new ArrayList<>(mExcluded == null ? mEnd - mStart + 1 : size());
+        for (Calendar calendar : this) {
+            calendars.add(calendar);
+        }
+        return calendars;
+    }
+
+    private Calendar createCalendar(int day) {
+        Calendar calendar = CalendarUtil.fromDayNumber(day);
+        LunarCalendar.setupLunarCalendar(calendar);
+        mDelegate.updateCalendarScheme(calendar);
+        return calendar;
+    }
+
+    /**
+     * 先查规则的月掩码，未被禁用时才设置农历、标记并回调拦截事件
+     *
+     * @param day CalendarUtil.toDayNumber
+     * @return 被拦截返回null
+     */
+    private Calendar createIfIncluded(int day) {
+        Calendar calendar = CalendarUtil.fromDayNumber(day);
+        DisabledDayRules rules = mDelegate.mDisabledDayRules;
+        if (rules != null && rules.isDisabled(calendar)) {
+            return null;
+        }
+        LunarCalendar.setupLunarCalendar(calendar);
+        mDelegate.updateCalendarScheme(calendar);
+        CalendarView.OnCalendarInterceptListener listener = mDelegate.mCalendarInterceptListener;
+        if (listener != null && listener.onCalendarIntercept(calendar)) {
+            return null;
+        }
+        return calendar;
+    }
+
+    /**
+     * 只有规则时直接读取月掩码，不创建Calendar
+     */
+    private int[] getExcluded() {
+        if (mExcluded != null) {
+            return mExcluded;
+        }
+        DisabledDayRules rules = mDelegate.mDisabledDayRules;
+        CalendarView.OnCalendarInterceptListener listener = mDelegate.mCalendarInterceptListener;
+        if (rules == null && listener == null) {
+            mExcluded = new int[0];
+            return mExcluded;
+        }
+        int[] excluded = new int[16];
+        int count = 0;
+        Calendar calendar = CalendarUtil.fromDayNumber(mStart);
+        int year = calendar.getYear(), month = calendar.getMonth(), day = calendar.getDay();
+        int mask = rules == null ? 0 : rules.getMonthMask(year, month);
+        for (int i = mStart; i <= mEnd; i++) {
+            if ((mask & (1 << day)) != 0 ||
+                    (listener != null && listener.onCalendarIntercept(createCalendar(i)))) {
+                if (count == excluded.length) {
+                    excluded = Arrays.copyOf(excluded, count * 2);
+                }
+                excluded[count++] = i;
+            }
+            if (day == CalendarUtil.getMonthDaysCount(year, month)) {
+                day = 1;
+                if (++month > 12) {
+                    month = 1;
+                    year++;
+                }
+                mask = rules == null ? 0 : rules.getMonthMask(year, month);
+            } else {
+                day++;
+            }
+        }
+        mExcluded = Arrays.copyOf(excluded, count);
+        return mExcluded;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import java.io.Serializable;
+
+/**
+ * 跨天事件，如出差、排班，起止日期都包含在内
+ * 设置给CalendarView后不要再修改
+ */
+public final class CalendarSpan implements Serializable {
+    private static final long serialVersionUID = 141315161718191144L;
+
+    /**
+     * 开始日期
+     */
+    private Calendar start;
+
+    /**
+     * 结束日期
+     */
+    private Calendar end;
+
+    /**
+     * 颜色
+     */
+    private int color;
+
+    /**
+     * 文本
+     */
+    private String text;
+
+    /**
+     * 自定义数据
+     */
+    private Object obj;
+
+    public CalendarSpan() {
+    }
+
+    public CalendarSpan(Calendar start, Calendar end, int color, String text) {
+        this.start = start;
+        this.end = end;
+        this.color = color;
+        this.text = text;
+    }
+
+    public Calendar getStart() {
+        return start;
+    }
+
+    public void setStart(Calendar start) {
+        this.start = start;
+    }
+
+    public Calendar getEnd() {
+        return end;
+    }
+
+    public void setEnd(Calendar end) {
+        this.end = end;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public Object getObj() {
+        return obj;
+    }
+
+    public void setObj(Object obj) {
+        this.obj = obj;
+    }
+}
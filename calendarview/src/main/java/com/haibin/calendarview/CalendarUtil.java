@@ -110,8 +110,6 @@ final class CalendarUtil {
      * @return 不需要多余行的高度
      */
     static int getMonthViewHeight(int year, int month, int itemHeight, int weekStartWith) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(year, month - 1, 1,12,0,0);
         int preDiff = getMonthViewStartDiff(year, month, weekStartWith);
         int monthDaysCount = getMonthDaysCount(year, month);
         int nextDiff = getMonthEndDiff(year, month, monthDaysCount, weekStartWith);
@@ -143,8 +141,6 @@ final class CalendarUtil {
      * @return 获取某天在该月的第几周 the week line in MonthView
      */
     static int getWeekFromDayInMonth(Calendar calendar, int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(calendar.getYear(), calendar.getMonth() - 1, 1,12,0,0);
         //该月第一天为星期几,星期天 == 0
         int diff = getMonthViewStartDiff(calendar, weekStart);
         return (calendar.getDay() + diff - 1) / 7 + 1;
@@ -157,37 +153,102 @@ final class CalendarUtil {
      * @return 获取上一个日子
      */
     static Calendar getPreCalendar(Calendar calendar) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-
-        date.set(calendar.getYear(), calendar.getMonth() - 1, calendar.getDay(),12,0,0);//
-
-        long timeMills = date.getTimeInMillis();//获得起始时间戳
-
-        date.setTimeInMillis(timeMills - ONE_DAY);
-
         Calendar preCalendar = new Calendar();
-        preCalendar.setYear(date.get(java.util.Calendar.YEAR));
-        preCalendar.setMonth(date.get(java.util.Calendar.MONTH) + 1);
-        preCalendar.setDay(date.get(java.util.Calendar.DAY_OF_MONTH));
-
+        setPreCalendar(calendar, preCalendar);
         return preCalendar;
     }
 
     static Calendar getNextCalendar(Calendar calendar) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-
-        date.set(calendar.getYear(), calendar.getMonth() - 1, calendar.getDay(),12,0,0);//
+        Calendar nextCalendar = new Calendar();
+        setNextCalendar(calendar, nextCalendar);
+        return nextCalendar;
+    }
 
-        long timeMills = date.getTimeInMillis();//获得起始时间戳
+    /**
+     * 将target的年月日设为calendar的上一天，不创建对象
+     *
+     * @param calendar calendar
+     * @param target   target
+     */
+    static void setPreCalendar(Calendar calendar, Calendar target) {
+        int year = calendar.getYear();
+        int month = calendar.getMonth();
+        int day = calendar.getDay() - 1;
+        if (day < 1) {
+            if (--month < 1) {
+                month = 12;
+                --year;
+            }
+            day = getMonthDaysCount(year, month);
+        }
+        target.setYear(year);
+        target.setMonth(month);
+        target.setDay(day);
+    }
 
-        date.setTimeInMillis(timeMills + ONE_DAY);
+    /**
+     * 将target的年月日设为calendar的下一天，不创建对象
+     *
+     * @param calendar calendar
+     * @param target   target
+     */
+    static void setNextCalendar(Calendar calendar, Calendar target) {
+        int year = calendar.getYear();
+        int month = calendar.getMonth();
+        int day = calendar.getDay() + 1;
+        if (day > getMonthDaysCount(year, month)) {
+            day = 1;
+            if (++month > 12) {
+                month = 1;
+                ++year;
+            }
+        }
+        target.setYear(year);
+        target.setMonth(month);
+        target.setDay(day);
+    }
 
-        Calendar nextCalendar = new Calendar();
-        nextCalendar.setYear(date.get(java.util.Calendar.YEAR));
-        nextCalendar.setMonth(date.get(java.util.Calendar.MONTH) + 1);
-        nextCalendar.setDay(date.get(java.util.Calendar.DAY_OF_MONTH));
+    /**
+     * 复制日期、农历、节日信息，标记会被清空，target原有的农历对象会被复用
+     *
+     * @param src    src
+     * @param target target
+     */
+    static void copyCalendar(Calendar src, Calendar target) {
+        target.setYear(src.getYear());
+        target.setMonth(src.getMonth());
+        target.setDay(src.getDay());
+        target.setCurrentMonth(src.isCurrentMonth());
+        target.setCurrentDay(src.isCurrentDay());
+        copyLunar(src, target);
+        target.setLeapYear(src.isLeapYear());
+        target.setWeekend(src.isWeekend());
+        target.setWeek(src.getWeek());
+        target.setScheme(null);
+        target.setSchemeColor(0);
+        target.setSchemes(null);
+        Calendar lunarCalendar = src.getLunarCalendar();
+        if (lunarCalendar == null) {
+            target.setLunarCalendar(null);
+            return;
+        }
+        Calendar targetLunar = target.getLunarCalendar();
+        if (targetLunar == null) {
+            targetLunar = new Calendar();
+            target.setLunarCalendar(targetLunar);
+        }
+        targetLunar.setYear(lunarCalendar.getYear());
+        targetLunar.setMonth(lunarCalendar.getMonth());
+        targetLunar.setDay(lunarCalendar.getDay());
+        copyLunar(lunarCalendar, targetLunar);
+    }
 
-        return nextCalendar;
+    private static void copyLunar(Calendar src, Calendar target) {
+        target.setLunar(src.getLunar());
+        target.setLeapMonth(src.getLeapMonth());
+        target.setSolarTerm(src.getSolarTerm());
+        target.setGregorianFestival(src.getGregorianFestival());
+        target.setTraditionFestival(src.getTraditionFestival());
     }
 
     /**
@@ -200,16 +261,7 @@ final class CalendarUtil {
      * @return 获取日期所在月视图对应的起始偏移量 the start diff with MonthView
      */
     static int getMonthViewStartDiff(Calendar calendar, int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(calendar.getYear(), calendar.getMonth() - 1, 1,12,0,0);
-        int week = date.get(java.util.Calendar.DAY_OF_WEEK);
-        if (weekStart == CalendarViewDelegate.WEEK_START_WITH_SUN) {
-            return week - 1;
-        }
-        if (weekStart == CalendarViewDelegate.WEEK_START_WITH_MON) {
-            return week == 1 ? 6 : week - weekStart;
-        }
-        return week == CalendarViewDelegate.WEEK_START_WITH_SAT ? 0 : week;
+        return getMonthViewStartDiff(calendar.getYear(), calendar.getMonth(), weekStart);
     }
 
 
@@ -224,9 +276,7 @@ final class CalendarUtil {
      * @return 获取日期所在月视图对应的起始偏移量 the start diff with MonthView
      */
     static int getMonthViewStartDiff(int year, int month, int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(year, month - 1, 1,12,0,0);
-        int week = date.get(java.util.Calendar.DAY_OF_WEEK);
+        int week = getWeekFormDate(year, month, 1) + 1;
         if (weekStart == CalendarViewDelegate.WEEK_START_WITH_SUN) {
             return week - 1;
         }
@@ -263,9 +313,7 @@ final class CalendarUtil {
      * @return 获取日期月份对应的结束偏移量 the end diff in Month not MonthView
      */
     private static int getMonthEndDiff(int year, int month, int day, int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(year, month - 1, day);
-        int week = date.get(java.util.Calendar.DAY_OF_WEEK);
+        int week = getWeekFormDate(year, month, day) + 1;
         if (weekStart == CalendarViewDelegate.WEEK_START_WITH_SUN) {
             return 7 - week;
         }
@@ -283,9 +331,57 @@ final class CalendarUtil {
      * @return 返回某个日期是星期几
      */
     static int getWeekFormCalendar(Calendar calendar) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(calendar.getYear(), calendar.getMonth() - 1, calendar.getDay());
-        return date.get(java.util.Calendar.DAY_OF_WEEK) - 1;
+        return getWeekFormDate(calendar.getYear(), calendar.getMonth(), calendar.getDay());
+    }
+
+    /**
+     * 获取某个日期是星期几，纯整数运算，不创建java.util.Calendar
+     *
+     * @param year  年
+     * @param month 月
+     * @param day   日
+     * @return 0为周日，6为周六
+     */
+    static int getWeekFormDate(int year, int month, int day) {
+        return (toDayNumber(year, month, day) + 3) % 7;
+    }
+
+    /**
+     * 日期对应的天数序号，相邻两天相差1
+     * 纯整数运算，与时区、夏令时无关，可在任意线程调用
+     *
+     * @param year  年
+     * @param month 月
+     * @param day   日
+     * @return 天数序号
+     */
+    static int toDayNumber(int year, int month, int day) {
+        return (int) LunarUtil.solarToInt(year, month, day);
+    }
+
+    /**
+     * 日期对应的天数序号
+     *
+     * @param calendar calendar
+     * @return 天数序号
+     */
+    static int toDayNumber(Calendar calendar) {
+        return toDayNumber(calendar.getYear(), calendar.getMonth(), calendar.getDay());
+    }
+
+    /**
+     * 天数序号转换为日期
+     *
+     * @param dayNumber 天数序号
+     * @return 只有年月日的Calendar
+     */
+    static Calendar fromDayNumber(int dayNumber) {
+        int[] solar = LunarUtil.solarFromInt(dayNumber);
+        Calendar calendar = new Calendar();
+        calendar.setYear(solar[0]);
+        calendar.setMonth(solar[1]);
+        calendar.setDay(solar[2]);
+        return calendar;
     }
 
 
@@ -317,14 +413,9 @@ final class CalendarUtil {
     static boolean isCalendarInRange(Calendar calendar,
                                      int minYear, int minYearMonth, int minYearDay,
                                      int maxYear, int maxYearMonth, int maxYearDay) {
-        java.util.Calendar c = java.util.Calendar.getInstance();
-        c.set(minYear, minYearMonth - 1, minYearDay);
-        long minTime = c.getTimeInMillis();
-        c.set(maxYear, maxYearMonth - 1, maxYearDay);
-        long maxTime = c.getTimeInMillis();
-        c.set(calendar.getYear(), calendar.getMonth() - 1, calendar.getDay());
-        long curTime = c.getTimeInMillis();
-        return curTime >= minTime && curTime <= maxTime;
+        int cur = calendar.getDayKey();
+        return cur >= Calendar.toDayKey(minYear, minYearMonth, minYearDay) &&
+                cur <= Calendar.toDayKey(maxYear, maxYearMonth, maxYearDay);
     }
 
     /**
@@ -344,22 +435,10 @@ final class CalendarUtil {
     static int getWeekCountBetweenBothCalendar(int minYear, int minYearMonth, int minYearDay,
                                                int maxYear, int maxYearMonth, int maxYearDay,
                                                int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(minYear, minYearMonth - 1, minYearDay);
-        long minTimeMills = date.getTimeInMillis();//给定时间戳
         int preDiff = getWeekViewStartDiff(minYear, minYearMonth, minYearDay, weekStart);
-
-        date.set(maxYear, maxYearMonth - 1, maxYearDay);
-
-        long maxTimeMills = date.getTimeInMillis();//给定时间戳
-
         int nextDiff = getWeekViewEndDiff(maxYear, maxYearMonth, maxYearDay, weekStart);
-
-        int count = preDiff + nextDiff;
-
-        int c = (int) ((maxTimeMills - minTimeMills) / ONE_DAY) + 1;
-        count += c;
-        return count / 7;
+        int c = toDayNumber(maxYear, maxYearMonth, maxYearDay) - toDayNumber(minYear, minYearMonth, minYearDay) + 1;
+        return (preDiff + c + nextDiff) / 7;
     }
 
 
@@ -378,33 +457,15 @@ final class CalendarUtil {
     static int getWeekFromCalendarStartWithMinCalendar(Calendar calendar,
                                                        int minYear, int minYearMonth, int minYearDay,
                                                        int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(minYear, minYearMonth - 1, minYearDay);//起始日期
-        long firstTimeMill = date.getTimeInMillis();//获得范围起始时间戳
-
         int preDiff = getWeekViewStartDiff(minYear, minYearMonth, minYearDay, weekStart);//范围起始的周偏移量
 
-        int weekStartDiff = getWeekViewStartDiff(calendar.getYear(),
-                calendar.getMonth(),
-                calendar.getDay(),
-                weekStart);//获取点击的日子在周视图的起始，为了兼容全球时区，最大日差为一天，如果周起始偏差weekStartDiff=0，则日期加1
-
-        date.set(calendar.getYear(),
-                calendar.getMonth() - 1,
-                weekStartDiff == 0 ? calendar.getDay() + 1 : calendar.getDay());
-
-        long curTimeMills = date.getTimeInMillis();//给定时间戳
-
-        int c = (int) ((curTimeMills - firstTimeMill) / ONE_DAY);
-
-        int count = preDiff + c;
+        int c = toDayNumber(calendar) - toDayNumber(minYear, minYearMonth, minYearDay);
 
-        return count / 7 + 1;
+        return (preDiff + c) / 7 + 1;
     }
 
     /**
-     * 根据星期数和最小日期推算出该星期的第一天，
-     * 为了防止夏令时，导致的时间提前和延后1-2小时，导致日期出现误差1天，因此吧hourOfDay = 12
+     * 根据星期数和最小日期推算出该星期的第一天
      * //测试通过 Test pass
      *
      * @param minYear      最小年份如2017
@@ -414,32 +475,8 @@ final class CalendarUtil {
      * @return 该星期的第一天日期
      */
     static Calendar getFirstCalendarStartWithMinCalendar(int minYear, int minYearMonth, int minYearDay, int week, int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-
-        date.set(minYear, minYearMonth - 1, minYearDay, 12, 0);//
-
-        long firstTimeMills = date.getTimeInMillis();//获得起始时间戳
-
-
-        long weekTimeMills = (week - 1) * 7 * ONE_DAY;
-
-        long timeCountMills = weekTimeMills + firstTimeMills;
-
-        date.setTimeInMillis(timeCountMills);
-
-        int startDiff = getWeekViewStartDiff(date.get(java.util.Calendar.YEAR),
-                date.get(java.util.Calendar.MONTH) + 1,
-                date.get(java.util.Calendar.DAY_OF_MONTH), weekStart);
-
-        timeCountMills -= startDiff * ONE_DAY;
-        date.setTimeInMillis(timeCountMills);
-
-        Calendar calendar = new Calendar();
-        calendar.setYear(date.get(java.util.Calendar.YEAR));
-        calendar.setMonth(date.get(java.util.Calendar.MONTH) + 1);
-        calendar.setDay(date.get(java.util.Calendar.DAY_OF_MONTH));
-
-        return calendar;
+        int dayNumber = toDayNumber(minYear, minYearMonth, minYearDay) + (week - 1) * 7;
+        return fromDayNumber(dayNumber - getWeekViewStartDiff((dayNumber + 3) % 7 + 1, weekStart));
     }
 
 
@@ -488,17 +525,7 @@ final class CalendarUtil {
         if (calendar2 == null) {
             return Integer.MAX_VALUE;
         }
-        java.util.Calendar date = java.util.Calendar.getInstance();
-
-        date.set(calendar1.getYear(), calendar1.getMonth() - 1, calendar1.getDay(), 12, 0, 0);//
-
-        long startTimeMills = date.getTimeInMillis();//获得起始时间戳
-
-        date.set(calendar2.getYear(), calendar2.getMonth() - 1, calendar2.getDay(), 12, 0, 0);//
-
-        long endTimeMills = date.getTimeInMillis();//获得结束时间戳
-
-        return (int) ((startTimeMills - endTimeMills) / ONE_DAY);
+        return toDayNumber(calendar1) - toDayNumber(calendar2);
     }
 
     /**
@@ -514,16 +541,9 @@ final class CalendarUtil {
      */
     static int compareTo(int minYear, int minYearMonth, int minYearDay,
                          int maxYear, int maxYearMonth, int maxYearDay) {
-        Calendar first = new Calendar();
-        first.setYear(minYear);
-        first.setMonth(minYearMonth);
-        first.setDay(minYearDay);
-
-        Calendar second = new Calendar();
-        second.setYear(maxYear);
-        second.setMonth(maxYearMonth);
-        second.setDay(maxYearDay);
-        return first.compareTo(second);
+        int first = Calendar.toDayKey(minYear, minYearMonth, minYearDay);
+        int second = Calendar.toDayKey(maxYear, maxYearMonth, maxYearDay);
+        return first < second ? -1 : (first == second ? 0 : 1);
     }
 
     /**
@@ -536,66 +556,75 @@ final class CalendarUtil {
      * @return 为月视图初始化日历项
      */
     static List<Calendar> initCalendarForMonthView(int year, int month, Calendar currentDate, int weekStar) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-
-        date.set(year, month - 1, 1);
-
-        int mPreDiff = getMonthViewStartDiff(year, month, weekStar);//获取月视图其实偏移量
-
-        int monthDayCount = getMonthDaysCount(year, month);//获取月份真实天数
-
-        int preYear, preMonth;
-        int nextYear, nextMonth;
-
-        int size = 42;
-
-        List<Calendar> mItems = new ArrayList<>();
+        List<Calendar> mItems = new ArrayList<>(42);
+        initCalendarForMonthView(year, month, currentDate, weekStar, new Calendar[42], mItems);
+        return mItems;
+    }
 
-        int preMonthDaysCount;
-        if (month == 1) {//如果是1月
-            preYear = year - 1;
-            preMonth = 12;
-            nextYear = year;
-            nextMonth = month + 1;
-            preMonthDaysCount = mPreDiff == 0 ? 0 : CalendarUtil.getMonthDaysCount(preYear, preMonth);
-        } else if (month == 12) {//如果是12月
-            preYear = year;
-            preMonth = month - 1;
-            nextYear = year + 1;
-            nextMonth = 1;
-            preMonthDaysCount = mPreDiff == 0 ? 0 : CalendarUtil.getMonthDaysCount(preYear, preMonth);
-        } else {//平常
-            preYear = year;
-            preMonth = month - 1;
-            nextYear = year;
-            nextMonth = month + 1;
-            preMonthDaysCount = mPreDiff == 0 ? 0 : CalendarUtil.getMonthDaysCount(preYear, preMonth);
+    /**
+     * 为月视图初始化日历，复用pool中的Calendar，预热后不再分配对象
+     * pool中为null的位置会新建Calendar并回填
+     *
+     * @param year        year
+     * @param month       month
+     * @param currentDate currentDate
+     * @param weekStar    weekStar
+     * @param pool        长度为42的复用池
+     * @param items       输出的日历项，会先清空
+     */
+    static void initCalendarForMonthView(int year, int month, Calendar currentDate, int weekStar,
+                                         Calendar[] pool, List<Calendar> items) {
+        int preDiff = getMonthViewStartDiff(year, month, weekStar);//获取月视图其实偏移量
+
+        int y = year, m = month, d = 1;
+        if (preDiff != 0) {
+            if (month == 1) {//如果是1月
+                y = year - 1;
+                m = 12;
+            } else {
+                m = month - 1;
+            }
+            d = getMonthDaysCount(y, m) - preDiff + 1;
         }
-        int nextDay = 1;
-        for (int i = 0; i < size; i++) {
-            Calendar calendarDate = new Calendar();
-            if (i < mPreDiff) {
-                calendarDate.setYear(preYear);
-                calendarDate.setMonth(preMonth);
-                calendarDate.setDay(preMonthDaysCount - mPreDiff + i + 1);
-            } else if (i >= monthDayCount + mPreDiff) {
-                calendarDate.setYear(nextYear);
-                calendarDate.setMonth(nextMonth);
-                calendarDate.setDay(nextDay);
-                ++nextDay;
+        int monthDayCount = getMonthDaysCount(y, m);
+        int curYear = currentDate == null ? 0 : currentDate.getYear();
+        int curMonth = currentDate == null ? 0 : currentDate.getMonth();
+        int curDay = currentDate == null ? 0 : currentDate.getDay();
+
+        items.clear();
+        for (int i = 0; i < 42; i++) {
+            Calendar calendarDate = pool[i];
+            Calendar lunarCalendar;
+            if (calendarDate == null) {
+                calendarDate = new Calendar();
+                lunarCalendar = new Calendar();
+                pool[i] = calendarDate;
             } else {
-                calendarDate.setYear(year);
-                calendarDate.setMonth(month);
-                calendarDate.setCurrentMonth(true);
-                calendarDate.setDay(i - mPreDiff + 1);
+                lunarCalendar = calendarDate.getLunarCalendar();
+                if (lunarCalendar == null) {
+                    lunarCalendar = new Calendar();
+                }
+                calendarDate.setScheme(null);
+                calendarDate.setSchemeColor(0);
+                calendarDate.setSchemes(null);
             }
-            if (calendarDate.equals(currentDate)) {
-                calendarDate.setCurrentDay(true);
+            calendarDate.setYear(y);
+            calendarDate.setMonth(m);
+            calendarDate.setDay(d);
+            calendarDate.setCurrentMonth(y == year && m == month);
+            calendarDate.setCurrentDay(y == curYear && m == curMonth && d == curDay);
+            LunarCalendar.setupLunarCalendar(calendarDate, lunarCalendar);
+            items.add(calendarDate);
+
+            if (++d > monthDayCount) {
+                d = 1;
+                if (++m > 12) {
+                    m = 1;
+                    ++y;
+                }
+                monthDayCount = getMonthDaysCount(y, m);
             }
-            LunarCalendar.setupLunarCalendar(calendarDate);
-            mItems.add(calendarDate);
         }
-        return mItems;
     }
 
     static List<Calendar> getWeekCalendars(Calendar calendar, CalendarViewDelegate mDelegate) {
@@ -685,9 +714,17 @@ final class CalendarUtil {
      * @return 获取周视图起始偏移量，用来生成周视图布局
      */
     private static int getWeekViewStartDiff(int year, int month, int day, int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(year, month - 1, day, 12, 0);//
-        int week = date.get(java.util.Calendar.DAY_OF_WEEK);
+        return getWeekViewStartDiff(getWeekFormDate(year, month, day) + 1, weekStart);
+    }
+
+    /**
+     * 周视图起始偏移量
+     *
+     * @param week      DAY_OF_WEEK，1为周日
+     * @param weekStart 周起始，1，2，7 日 一 六
+     * @return 周视图起始偏移量
+     */
+    private static int getWeekViewStartDiff(int week, int weekStart) {
         if (weekStart == 1) {
             return week - 1;
         }
@@ -701,8 +738,7 @@ final class CalendarUtil {
     /**
      * 单元测试通过
      * 从选定的日期，获取周视图结束偏移量，用来生成周视图布局
-     * 为了兼容DST，DST时区可能出现时间偏移1-2小时，从而导致凌晨时候实际获得的日期往前或者往后推移了一天，
-     * 日历没有时和分的概念，因此把日期的时间强制在12:00，可以避免DST兼容问题
+     *
      * @param year      year
      * @param month     month
      * @param day       day
@@ -710,9 +746,7 @@ final class CalendarUtil {
      * @return 获取周视图结束偏移量，用来生成周视图布局
      */
     public static int getWeekViewEndDiff(int year, int month, int day, int weekStart) {
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(year, month - 1, day, 12, 0);
-        int week = date.get(java.util.Calendar.DAY_OF_WEEK);
+        int week = getWeekFormDate(year, month, day) + 1;
         if (weekStart == 1) {
             return 7 - week;
         }
@@ -28,12 +28,15 @@ import android.widget.FrameLayout;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
 import androidx.viewpager.widget.ViewPager;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -79,6 +82,41 @@ public class CalendarView extends FrameLayout {
      */
     CalendarLayout mParentLayout;
 
+    /**
+     * beginUpdate()、endUpdate()期间延迟的刷新
+     */
+    private static final int UPDATE_ALL = 1;
+    private static final int UPDATE_SCHEME = 1 << 1;
+    private static final int UPDATE_STYLE = 1 << 2;
+    private static final int UPDATE_YEAR_STYLE = 1 << 3;
+    private static final int UPDATE_SELECTED_SCHEME = 1 << 4;
+
+    /**
+     * beginUpdate()嵌套层数
+     */
+    private int mUpdateDepth;
+
+    /**
+     * 批量更新期间积累的刷新
+     */
+    private int mPendingUpdates;
+
+    /**
+     * 批量更新期间标记变化的日期
+     */
+    private int[] mPendingDayKeys = new int[16];
+    private int mPendingDayKeyCount;
+
+    /**
+     * 在下一帧统一刷新
+     */
+    private final Runnable mPendingUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            performPendingUpdates();
+        }
+    };
+
 
     public CalendarView(@NonNull Context context) {
         this(context, null);
@@ -87,6 +125,19 @@ public class CalendarView extends FrameLayout {
     public CalendarView(@NonNull Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
         mDelegate = new CalendarViewDelegate(context, attrs);
+        mDelegate.mSchemeStore.setOnSchemeChangeListener(new SchemeStore.OnSchemeChangeListener() {
+            @Override
+            public void onSchemeChanged(int[] dayKeys) {
+                CalendarView.this.onSchemeChanged(dayKeys);
+            }
+
+            @Override
+            public void onSchemeDiff(List<Calendar> added, List<Calendar> changed, List<Calendar> removed) {
+                if (mDelegate.mSchemeDiffListener != null) {
+                    mDelegate.mSchemeDiffListener.onSchemeDiff(added, changed, removed);
+                }
+            }
+        });
         init(context);
     }
 
@@ -448,9 +499,8 @@ public class CalendarView extends FrameLayout {
             return;
         }
         Calendar calendar = mDelegate.createCurrentDate();
-        if (mDelegate.mCalendarInterceptListener != null &&
-                mDelegate.mCalendarInterceptListener.onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, false);
+        if (onCalendarIntercept(calendar)) {
+            mDelegate.onCalendarInterceptClick(calendar, false);
             return;
         }
         mDelegate.mSelectedCalendar = mDelegate.createCurrentDate();
@@ -570,9 +620,8 @@ public class CalendarView extends FrameLayout {
         if (!isInRange(calendar)) {
             return;
         }
-        if (mDelegate.mCalendarInterceptListener != null &&
-                mDelegate.mCalendarInterceptListener.onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, false);
+        if (onCalendarIntercept(calendar)) {
+            mDelegate.onCalendarInterceptClick(calendar, false);
             return;
         }
 
@@ -683,10 +732,10 @@ public class CalendarView extends FrameLayout {
             return;
         }
         for (Calendar calendar : calendars) {
-            if (calendar == null || mDelegate.mSelectedCalendars.containsKey(calendar.toString())) {
+            if (calendar == null) {
                 continue;
             }
-            mDelegate.mSelectedCalendars.put(calendar.toString(), calendar);
+            mDelegate.mSelectedCalendars.add(CalendarUtil.toDayNumber(calendar));
         }
         update();
     }
@@ -696,7 +745,6 @@ public class CalendarView extends FrameLayout {
      *
      * @param calendars calendars
      */
-    @SuppressWarnings("RedundantCollectionOperation")
     public final void removeMultiSelect(Calendar... calendars) {
         if (calendars == null || calendars.length == 0) {
             return;
@@ -705,22 +753,28 @@ public class CalendarView extends FrameLayout {
             if (calendar == null) {
                 continue;
             }
-            if (mDelegate.mSelectedCalendars.containsKey(calendar.toString())) {
-                mDelegate.mSelectedCalendars.remove(calendar.toString());
-            }
+            mDelegate.mSelectedCalendars.remove(CalendarUtil.toDayNumber(calendar));
         }
         update();
     }
 
 
+    /**
+     * 获取多选的日期，按日期先后排列
+     *
+     * @return 多选的日期
+     */
     public final List<Calendar> getMultiSelectCalendars() {
-        List<Calendar> calendars = new ArrayList<>();
-        if (mDelegate.mSelectedCalendars.size() == 0) {
-            return calendars;
-        }
-        calendars.addAll(mDelegate.mSelectedCalendars.values());
-        Collections.sort(calendars);
-        return calendars;
+        return mDelegate.getMultiSelectCalendars();
+    }
+
+    /**
+     * 多选的数量
+     *
+     * @return 多选的数量
+     */
+    public final int getMultiSelectSize() {
+        return mDelegate.mSelectedCalendars.size();
     }
 
     /**
@@ -732,6 +786,25 @@ public class CalendarView extends FrameLayout {
         return mDelegate.getSelectCalendarRange();
     }
 
+    /**
+     * 获取选中范围，不创建每一天的Calendar，可直接获取天数、起止日期，或按需遍历
+     * 选中大范围时代替getSelectCalendarRange
+     *
+     * @return 非范围模式或未选完返回null
+     */
+    public final CalendarRange getSelectRange() {
+        return mDelegate.getSelectRange();
+    }
+
+    /**
+     * 获取多范围选择中已选完的范围，按日期先后排列，重叠或相邻的范围已合并
+     *
+     * @return 非多范围模式返回null
+     */
+    public final List<CalendarRange> getSelectRanges() {
+        return mDelegate.getSelectRanges();
+    }
+
     /**
      * 设置月视图项高度
      *
@@ -750,6 +823,16 @@ public class CalendarView extends FrameLayout {
         mParentLayout.updateCalendarItemHeight();
     }
 
+    /**
+     * 设置月视图预取的月数，在后台线程提前计算前后count个月的日期、农历数据，
+     * 低端机滑动时主线程只需绘制，默认为2，0为不预取
+     *
+     * @param count 前后各预取的月数
+     */
+    public final void setPrefetchMonthCount(int count) {
+        mDelegate.setPrefetchMonthCount(count);
+    }
+
 
     /**
      * 设置月视图
@@ -767,6 +850,19 @@ public class CalendarView extends FrameLayout {
         mMonthPager.updateMonthViewClass();
     }
 
+    /**
+     * 设置月视图创建工厂，设置后不再通过反射创建月视图，null则恢复使用setMonthView的Class
+     *
+     * @param factory MonthViewFactory
+     */
+    public final void setMonthViewFactory(MonthViewFactory factory) {
+        if (mDelegate.mMonthViewFactory == factory) {
+            return;
+        }
+        mDelegate.mMonthViewFactory = factory;
+        mMonthPager.updateMonthViewClass();
+    }
+
     /**
      * 设置周视图
      *
@@ -783,6 +879,19 @@ public class CalendarView extends FrameLayout {
         mWeekPager.updateWeekViewClass();
     }
 
+    /**
+     * 设置周视图创建工厂，设置后不再通过反射创建周视图，null则恢复使用setWeekView的Class
+     *
+     * @param factory WeekViewFactory
+     */
+    public final void setWeekViewFactory(WeekViewFactory factory) {
+        if (mDelegate.mWeekViewFactory == factory) {
+            return;
+        }
+        mDelegate.mWeekViewFactory = factory;
+        mWeekPager.updateWeekViewClass();
+    }
+
     /**
      * 设置周栏视图
      *
@@ -818,10 +927,13 @@ public class CalendarView extends FrameLayout {
      * 使用此方法，只能基于select_mode = single_mode
      * 否则的话，如果标记全部日期为不可点击，那是没有意义的，
      * 框架本身也不可能在滑动的过程中全部去判断每个日期的可点击性
+     * 范围选择校验不可用日期或工作日时会对选择范围涉及的月份回调一次并缓存，
+     * 回调结果在运行时变化后需调用notifyCalendarInterceptChanged()
      *
      * @param listener listener
      */
     public final void setOnCalendarInterceptListener(OnCalendarInterceptListener listener) {
+        mDelegate.invalidateRangeValidator();
         if (listener == null) {
             mDelegate.mCalendarInterceptListener = null;
         }
@@ -835,6 +947,29 @@ public class CalendarView extends FrameLayout {
         mDelegate.mSelectedCalendar = new Calendar();
     }
 
+    /**
+     * 设置不可用日期规则，如周末、节假日、今天之前，按月编译为掩码，绘制时不再逐个日期回调
+     * 与setOnCalendarInterceptListener相同，只能基于非默认的选择模式
+     * 规则修改后缓存自动失效，调用update()刷新即可
+     *
+     * @param rules 规则，null则取消
+     */
+    public final void setDisabledDayRules(DisabledDayRules rules) {
+        mDelegate.invalidateRangeValidator();
+        if (rules == null) {
+            mDelegate.mDisabledDayRules = null;
+            update();
+        }
+        if (rules == null || mDelegate.getSelectMode() == CalendarViewDelegate.SELECT_MODE_DEFAULT) {
+            return;
+        }
+        mDelegate.mDisabledDayRules = rules;
+        if (mDelegate.mSelectedCalendar.isAvailable() && rules.isDisabled(mDelegate.mSelectedCalendar)) {
+            mDelegate.mSelectedCalendar = new Calendar();
+        }
+        update();
+    }
+
     /**
      * 年份改变事件
      *
@@ -844,6 +979,15 @@ public class CalendarView extends FrameLayout {
         this.mDelegate.mYearChangeListener = listener;
     }
 
+    /**
+     * 标记差异监听，setSchemeDate、clearSchemeDate后在主线程回调
+     *
+     * @param listener listener
+     */
+    public void setOnSchemeDiffListener(OnSchemeDiffListener listener) {
+        this.mDelegate.mSchemeDiffListener = listener;
+    }
+
     /**
      * 月份改变事件
      *
@@ -914,6 +1058,46 @@ public class CalendarView extends FrameLayout {
         mDelegate.setSelectRange(minRange, maxRange);
     }
 
+    /**
+     * 范围内有不可用日期时拒绝选择，如酒店连住不能跨过满房日期
+     * 不可用日期来自DisabledDayRules和OnCalendarInterceptListener，按月掩码计算，
+     * 设置了拦截事件时，只对选择范围涉及的月份逐日回调onCalendarIntercept一次并缓存
+     * 拦截结果在运行时变化，如满房状态更新后，需调用notifyCalendarInterceptChanged()或update()
+     *
+     * @param blocked 是否拒绝
+     */
+    public final void setSelectRangeBlockedByDisabledDays(boolean blocked) {
+        mDelegate.setRangeBlockedByDisabledDays(blocked);
+    }
+
+    /**
+     * 拦截事件的结果变化后调用，下次范围选择校验时重新回调拦截事件，并刷新界面
+     * 标记变化、update()、重新设置拦截事件或规则时会自动调用
+     */
+    public final void notifyCalendarInterceptChanged() {
+        mDelegate.invalidateRangeValidator();
+        update();
+    }
+
+    /**
+     * 设置范围内最多的工作日数量，工作日为周一到周五中可用的日期
+     * 与setSelectRangeBlockedByDisabledDays相同，只计算选择范围涉及的月份
+     *
+     * @param maxBusinessDays 最多的工作日数量，小于等于0为不限制
+     */
+    public final void setMaxSelectBusinessDays(int maxBusinessDays) {
+        mDelegate.setMaxSelectBusinessDays(maxBusinessDays);
+    }
+
+    /**
+     * 范围选择被拒绝事件，回调具体原因
+     *
+     * @param listener listener
+     */
+    public final void setOnCalendarRangeRejectListener(OnCalendarRangeRejectListener listener) {
+        this.mDelegate.mCalendarRangeRejectListener = listener;
+    }
+
 
     public final void setSelectStartCalendar(int startYear, int startMonth, int startDay) {
         if (mDelegate.getSelectMode() != CalendarViewDelegate.SELECT_MODE_RANGE) {
@@ -940,9 +1124,7 @@ public class CalendarView extends FrameLayout {
             return;
         }
         if (onCalendarIntercept(startCalendar)) {
-            if (mDelegate.mCalendarInterceptListener != null) {
-                mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(startCalendar, false);
-            }
+            mDelegate.onCalendarInterceptClick(startCalendar, false);
             return;
         }
         mDelegate.mSelectedEndRangeCalendar = null;
@@ -1015,15 +1197,11 @@ public class CalendarView extends FrameLayout {
             return;
         }
         if (onCalendarIntercept(startCalendar)) {
-            if (mDelegate.mCalendarInterceptListener != null) {
-                mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(startCalendar, false);
-            }
+            mDelegate.onCalendarInterceptClick(startCalendar, false);
             return;
         }
         if (onCalendarIntercept(endCalendar)) {
-            if (mDelegate.mCalendarInterceptListener != null) {
-                mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(endCalendar, false);
-            }
+            mDelegate.onCalendarInterceptClick(endCalendar, false);
             return;
         }
         int minDiffer = endCalendar.differ(startCalendar);
@@ -1036,16 +1214,9 @@ public class CalendarView extends FrameLayout {
 
 
         //优先判断各种直接return的情况，减少代码深度
-        if (mDelegate.getMinSelectRange() != -1 && mDelegate.getMinSelectRange() > minDiffer + 1) {
-            if (mDelegate.mCalendarRangeSelectListener != null) {
-                mDelegate.mCalendarRangeSelectListener.onSelectOutOfRange(endCalendar, true);
-            }
-            return;
-        } else if (mDelegate.getMaxSelectRange() != -1 && mDelegate.getMaxSelectRange() <
-                minDiffer + 1) {
-            if (mDelegate.mCalendarRangeSelectListener != null) {
-                mDelegate.mCalendarRangeSelectListener.onSelectOutOfRange(endCalendar, false);
-            }
+        int reason = mDelegate.checkSelectRange(startCalendar, endCalendar);
+        if (reason != 0) {
+            mDelegate.onSelectRangeReject(startCalendar, endCalendar, reason);
             return;
         }
         if (mDelegate.getMinSelectRange() == -1 && minDiffer == 0) {
@@ -1068,14 +1239,51 @@ public class CalendarView extends FrameLayout {
     }
 
     /**
-     * 是否拦截日期，此设置续设置mCalendarInterceptListener
+     * 多范围选择模式下添加一个范围，与已选的重叠或相邻范围合并
+     *
+     * @param startCalendar startCalendar
+     * @param endCalendar   endCalendar
+     */
+    public final void addSelectRange(Calendar startCalendar, Calendar endCalendar) {
+        if (mDelegate.getSelectMode() != CalendarViewDelegate.SELECT_MODE_MULTI_RANGE) {
+            return;
+        }
+        if (startCalendar == null || endCalendar == null) {
+            return;
+        }
+        if (onCalendarIntercept(startCalendar)) {
+            mDelegate.onCalendarInterceptClick(startCalendar, false);
+            return;
+        }
+        if (onCalendarIntercept(endCalendar)) {
+            mDelegate.onCalendarInterceptClick(endCalendar, false);
+            return;
+        }
+        if (endCalendar.differ(startCalendar) < 0) {
+            return;
+        }
+        if (!isInRange(startCalendar) || !isInRange(endCalendar)) {
+            return;
+        }
+        int reason = mDelegate.checkSelectRange(startCalendar, endCalendar);
+        if (reason != 0) {
+            mDelegate.onSelectRangeReject(startCalendar, endCalendar, reason);
+            return;
+        }
+        mDelegate.mSelectedRanges.add(CalendarUtil.toDayNumber(startCalendar),
+                CalendarUtil.toDayNumber(endCalendar));
+        mMonthPager.updateSelected();
+        mWeekPager.updateSelected();
+    }
+
+    /**
+     * 是否拦截日期，此设置续设置DisabledDayRules或mCalendarInterceptListener
      *
      * @param calendar calendar
      * @return 是否拦截日期
      */
     protected final boolean onCalendarIntercept(Calendar calendar) {
-        return mDelegate.mCalendarInterceptListener != null &&
-                mDelegate.mCalendarInterceptListener.onCalendarIntercept(calendar);
+        return mDelegate.isCalendarIntercept(calendar);
     }
 
 
@@ -1165,6 +1373,8 @@ public class CalendarView extends FrameLayout {
         bundle.putParcelable("super", parcelable);
         bundle.putSerializable("selected_calendar", mDelegate.mSelectedCalendar);
         bundle.putSerializable("index_calendar", mDelegate.mIndexCalendar);
+        bundle.putInt("multi_select_origin", mDelegate.mSelectedCalendars.getOrigin());
+        bundle.putLongArray("multi_select", mDelegate.mSelectedCalendars.toLongArray());
         return bundle;
     }
 
@@ -1179,6 +1389,8 @@ public class CalendarView extends FrameLayout {
         Parcelable superData = bundle.getParcelable("super");
         mDelegate.mSelectedCalendar = (Calendar) bundle.getSerializable("selected_calendar");
         mDelegate.mIndexCalendar = (Calendar) bundle.getSerializable("index_calendar");
+        mDelegate.mSelectedCalendars.restore(bundle.getInt("multi_select_origin"),
+                bundle.getLongArray("multi_select"));
         if (mDelegate.mCalendarSelectListener != null) {
             mDelegate.mCalendarSelectListener.onCalendarSelect(mDelegate.mSelectedCalendar, false);
         }
@@ -1208,6 +1420,15 @@ public class CalendarView extends FrameLayout {
         }
     }
 
+    /**
+     * 离开窗口时取消导入，导入线程不再持有视图
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        cancelIcsImport();
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         int height = MeasureSpec.getSize(heightMeasureSpec);
@@ -1223,31 +1444,141 @@ public class CalendarView extends FrameLayout {
     }
 
     /**
-     * 标记哪些日期有事件
+     * 标记哪些日期有事件，可在任意线程调用，非主线程调用时在主线程刷新
+     * 与上次设置的比较，只重绘标记有变化的日期，已设置的Calendar不要再修改
      *
      * @param mSchemeDates mSchemeDatesMap 通过自己的需求转换即可
      */
     public final void setSchemeDate(Map<String, Calendar> mSchemeDates) {
-        this.mDelegate.mSchemeDatesMap = mSchemeDates;
-        this.mDelegate.updateSelectCalendarScheme();
-        this.mYearViewPager.update();
-        this.mMonthPager.updateScheme();
-        this.mWeekPager.updateScheme();
+        this.mDelegate.mSchemeStore.replace(mSchemeDates);
     }
 
     /**
-     * 清空日期标记
+     * 清空日期标记，可在任意线程调用
      */
     public final void clearSchemeDate() {
-        this.mDelegate.mSchemeDatesMap = null;
-        this.mDelegate.clearSelectedScheme();
-        mYearViewPager.update();
-        mMonthPager.updateScheme();
-        mWeekPager.updateScheme();
+        this.mDelegate.mSchemeStore.clear();
+    }
+
+    /**
+     * 打开saveSchemeFile保存的标记文件，通过内存映射读取，不解析整个文件，
+     * 冷启动时可立即显示上次的标记，之后只需通过addSchemeDate、removeSchemeDate同步变化
+     * 文件中的标记作为底层数据，setSchemeDate、addSchemeDate设置的同一天标记优先，
+     * clearSchemeDate不影响文件中的标记，取消请传入null
+     * 热力图和getSchemeCount包括文件中的标记，第一次用到某月时从文件统计该月
+     *
+     * @param file 标记文件，null则取消
+     * @throws IOException 文件不存在或格式不正确
+     */
+    public final void openSchemeFile(File file) throws IOException {
+        mDelegate.mSchemeStore.setFile(file == null ? null : SchemeFile.open(file));
     }
 
     /**
-     * 添加事物标记
+     * 保存当前所有标记到文件，包括打开的标记文件中的标记，可在任意线程调用，建议在后台线程
+     * 只保存标记文本、颜色和多标记，不保存自定义数据
+     *
+     * @param file 文件，可以是当前打开的文件
+     * @throws IOException IOException
+     */
+    public final void saveSchemeFile(File file) throws IOException {
+        mDelegate.mSchemeStore.save(file);
+    }
+
+    /**
+     * 设置跨天事件，如出差、排班，在月视图、周视图中每行回调一次onDrawSpan绘制连续的线段
+     *
+     * @param spans 跨天事件，设置后不要再修改
+     */
+    public final void setCalendarSpans(List<CalendarSpan> spans) {
+        mDelegate.mSpanIndex = SpanIndex.build(spans);
+        mMonthPager.updateSpans();
+        mWeekPager.updateSpans();
+    }
+
+    /**
+     * 清空跨天事件
+     */
+    public final void clearCalendarSpans() {
+        setCalendarSpans(null);
+    }
+
+    /**
+     * 设置按月异步加载的标记，只加载即将显示的月份，适合大量历史数据
+     * 与setSchemeDate可同时使用，同一天以setSchemeDate设置的为准
+     * 数据源变化后重新设置即可清空缓存
+     *
+     * @param provider 标记数据源，null则取消
+     */
+    public final void setSchemeProvider(SchemeProvider provider) {
+        if (mDelegate.mSchemeLoader != null) {
+            mDelegate.mSchemeLoader.release();
+            mDelegate.mSchemeLoader = null;
+        }
+        if (provider != null) {
+            mDelegate.mSchemeLoader = new SchemeLoader(provider, new SchemeLoader.OnSchemeLoadListener() {
+                @Override
+                public void onSchemeLoaded(int[] dayKeys) {
+                    onSchemeChanged(dayKeys);
+                }
+            });
+            setSchemeWindows();
+        }
+        onSchemeChanged(null);
+    }
+
+    /**
+     * 按当前页设置标记加载区间，翻页前onPageSelected不会回调
+     */
+    private void setSchemeWindows() {
+        Calendar calendar = CalendarUtil.getFirstCalendarFromMonthViewPager(mMonthPager.getCurrentItem(), mDelegate);
+        mDelegate.setSchemeWindow(SchemeLoader.WINDOW_MONTH, calendar.getYear(), calendar.getMonth(), 2, 2);
+        Calendar first = CalendarUtil.getFirstCalendarStartWithMinCalendar(mDelegate.getMinYear(),
+                mDelegate.getMinYearMonth(),
+                mDelegate.getMinYearDay(),
+                mWeekPager.getCurrentItem() + 1,
+                mDelegate.getWeekStart());
+        mDelegate.setSchemeWindow(SchemeLoader.WINDOW_WEEK, first.getYear(), first.getMonth(), 1, 1);
+        mDelegate.setSchemeWindow(SchemeLoader.WINDOW_YEAR,
+                mYearViewPager.getCurrentItem() + mDelegate.getMinYear(), 1, 13, 24);
+    }
+
+    /**
+     * 在后台线程流式导入iCalendar(.ics)，事件按天追加为多标记，SUMMARY为标记文本，
+     * 每解析一批日期就写入并刷新，不需要等整个文件解析完成
+     * 重复事件按RRULE展开到日历范围内，支持DAILY、WEEKLY、MONTHLY、YEARLY
+     * 再次导入会取消上一次导入，已写入的标记保留
+     *
+     * @param inputStream 文件流，导入结束后关闭，FileChannel可使用Channels.newInputStream
+     * @param schemeColor 标记颜色
+     * @param listener    导入进度，在主线程回调，可为null
+     */
+    public final void importIcs(InputStream inputStream, int schemeColor, OnIcsImportListener listener) {
+        cancelIcsImport();
+        if (inputStream == null) {
+            return;
+        }
+        mDelegate.mIcsImporter = new IcsImporter(mDelegate.mSchemeStore, inputStream, schemeColor,
+                CalendarUtil.toDayNumber(mDelegate.getMinYear(), mDelegate.getMinYearMonth(), mDelegate.getMinYearDay()),
+                CalendarUtil.toDayNumber(mDelegate.getMaxYear(), mDelegate.getMaxYearMonth(), mDelegate.getMaxYearDay()),
+                listener);
+        Thread thread = new Thread(mDelegate.mIcsImporter, "CalendarView-Import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 取消正在进行的iCalendar导入，已写入的标记保留
+     */
+    public final void cancelIcsImport() {
+        if (mDelegate.mIcsImporter != null) {
+            mDelegate.mIcsImporter.cancel();
+            mDelegate.mIcsImporter = null;
+        }
+    }
+
+    /**
+     * 添加事物标记，可在任意线程调用
      *
      * @param calendar calendar
      */
@@ -1255,19 +1586,11 @@ public class CalendarView extends FrameLayout {
         if (calendar == null || !calendar.isAvailable()) {
             return;
         }
-        if (mDelegate.mSchemeDatesMap == null) {
-            mDelegate.mSchemeDatesMap = new HashMap<>();
-        }
-        mDelegate.mSchemeDatesMap.remove(calendar.toString());
-        mDelegate.mSchemeDatesMap.put(calendar.toString(), calendar);
-        this.mDelegate.updateSelectCalendarScheme();
-        this.mYearViewPager.update();
-        this.mMonthPager.updateScheme();
-        this.mWeekPager.updateScheme();
+        mDelegate.mSchemeStore.put(calendar);
     }
 
     /**
-     * 添加事物标记
+     * 添加事物标记，可在任意线程调用
      *
      * @param mSchemeDates mSchemeDates
      */
@@ -1275,18 +1598,11 @@ public class CalendarView extends FrameLayout {
         if (this.mDelegate == null || mSchemeDates == null || mSchemeDates.size() == 0) {
             return;
         }
-        if (this.mDelegate.mSchemeDatesMap == null) {
-            this.mDelegate.mSchemeDatesMap = new HashMap<>();
-        }
-        this.mDelegate.addSchemes(mSchemeDates);
-        this.mDelegate.updateSelectCalendarScheme();
-        this.mYearViewPager.update();
-        this.mMonthPager.updateScheme();
-        this.mWeekPager.updateScheme();
+        this.mDelegate.mSchemeStore.putAll(mSchemeDates);
     }
 
     /**
-     * 移除某天的标记
+     * 移除某天的标记，可在任意线程调用
      * 这个API是安全的
      *
      * @param calendar calendar
@@ -1295,19 +1611,78 @@ public class CalendarView extends FrameLayout {
         if (calendar == null) {
             return;
         }
-        if (mDelegate.mSchemeDatesMap == null || mDelegate.mSchemeDatesMap.size() == 0) {
-            return;
+        mDelegate.mSchemeStore.remove(calendar.getDayKey());
+    }
+
+    /**
+     * 标记变化，主线程回调
+     *
+     * @param dayKeys 有序的Calendar.getDayKey()，null为全部
+     */
+    private void onSchemeChanged(int[] dayKeys) {
+        //拦截事件可能依赖标记，如满房标记
+        mDelegate.invalidateRangeValidator();
+        if (mUpdateDepth > 0) {
+            mPendingUpdates |= UPDATE_SELECTED_SCHEME;
+        } else {
+            if (dayKeys == null ||
+                    Arrays.binarySearch(dayKeys, mDelegate.mSelectedCalendar.getDayKey()) >= 0) {
+                mDelegate.clearSelectedScheme();
+            }
+            mDelegate.updateSelectCalendarScheme();
         }
-        mDelegate.mSchemeDatesMap.remove(calendar.toString());
-        if (mDelegate.mSelectedCalendar.equals(calendar)) {
-            mDelegate.clearSelectedScheme();
+        if (dayKeys == null) {
+            updateAllSchemes();
+        } else {
+            updateSchemes(dayKeys);
         }
+    }
 
+    /**
+     * 标记变化后只刷新包含这些日期的页面，其它页面不重新标记、不重绘
+     *
+     * @param dayKeys 有序的Calendar.getDayKey()
+     */
+    private void updateSchemes(int[] dayKeys) {
+        if (mUpdateDepth > 0) {
+            if (mPendingDayKeyCount + dayKeys.length > mPendingDayKeys.length) {
+                mPendingDayKeys = Arrays.copyOf(mPendingDayKeys,
+                        Math.max(mPendingDayKeys.length * 2, mPendingDayKeyCount + dayKeys.length));
+            }
+            System.arraycopy(dayKeys, 0, mPendingDayKeys, mPendingDayKeyCount, dayKeys.length);
+            mPendingDayKeyCount += dayKeys.length;
+            return;
+        }
+        mYearViewPager.updateSchemes(dayKeys);
+        mMonthPager.updateSchemes(dayKeys);
+        mWeekPager.updateSchemes(dayKeys);
+    }
+
+    /**
+     * 标记整体替换后刷新所有页面
+     */
+    private void updateAllSchemes() {
+        if (mUpdateDepth > 0) {
+            mPendingUpdates |= UPDATE_SCHEME;
+            return;
+        }
         mYearViewPager.update();
         mMonthPager.updateScheme();
         mWeekPager.updateScheme();
     }
 
+    /**
+     * 月视图、周视图样式改变后刷新
+     */
+    private void updatePagerStyle() {
+        if (mUpdateDepth > 0) {
+            mPendingUpdates |= UPDATE_STYLE;
+            return;
+        }
+        mMonthPager.updateStyle();
+        mWeekPager.updateStyle();
+    }
+
     /**
      * 设置背景色
      *
@@ -1342,8 +1717,7 @@ public class CalendarView extends FrameLayout {
         }
         mDelegate.setTextColor(currentDayTextColor, curMonthTextColor,
                 otherMonthColor, curMonthLunarTextColor, otherMonthLunarTextColor);
-        mMonthPager.updateStyle();
-        mWeekPager.updateStyle();
+        updatePagerStyle();
     }
 
     /**
@@ -1358,8 +1732,7 @@ public class CalendarView extends FrameLayout {
             return;
         }
         mDelegate.setSelectColor(selectedThemeColor, selectedTextColor, selectedLunarTextColor);
-        mMonthPager.updateStyle();
-        mWeekPager.updateStyle();
+        updatePagerStyle();
     }
 
     /**
@@ -1373,8 +1746,7 @@ public class CalendarView extends FrameLayout {
             return;
         }
         mDelegate.setThemeColor(selectedThemeColor, schemeColor);
-        mMonthPager.updateStyle();
-        mWeekPager.updateStyle();
+        updatePagerStyle();
     }
 
     /**
@@ -1389,8 +1761,7 @@ public class CalendarView extends FrameLayout {
             return;
         }
         mDelegate.setSchemeColor(schemeColor, schemeTextColor, schemeLunarTextColor);
-        mMonthPager.updateStyle();
-        mWeekPager.updateStyle();
+        updatePagerStyle();
     }
 
     /**
@@ -1405,9 +1776,49 @@ public class CalendarView extends FrameLayout {
             return;
         }
         mDelegate.setYearViewTextColor(yearViewMonthTextColor, yearViewDayTextColor, yarViewSchemeTextColor);
+        if (mUpdateDepth > 0) {
+            mPendingUpdates |= UPDATE_YEAR_STYLE;
+            return;
+        }
         mYearViewPager.updateStyle();
     }
 
+    /**
+     * 年视图使用热力图显示标记，颜色深浅由每天的标记数量决定，多标记按个数计算，
+     * 直接读取按月统计的数量，不再逐日查找标记，适合大量数据
+     * 热力图只统计setSchemeDate、addSchemeDate设置的标记
+     *
+     * @param level 达到最深颜色的标记数量，0为关闭
+     */
+    public final void setYearViewHeatmap(int level) {
+        if (mDelegate.getYearViewHeatmapLevel() == level) {
+            return;
+        }
+        mDelegate.setYearViewHeatmapLevel(level);
+        mYearViewPager.update();
+    }
+
+    /**
+     * 获取某月的标记数量，多标记按个数计算，包括openSchemeFile打开的文件中的标记
+     *
+     * @param year  年
+     * @param month 月
+     * @return 标记数量
+     */
+    public final int getSchemeCount(int year, int month) {
+        return mDelegate.mSchemeStore.getMonthCount(year, month);
+    }
+
+    /**
+     * 获取某年的标记数量，多标记按个数计算，包括openSchemeFile打开的文件中的标记
+     *
+     * @param year 年
+     * @return 标记数量
+     */
+    public final int getSchemeCount(int year) {
+        return mDelegate.mSchemeStore.getYearCount(year);
+    }
+
     /**
      * 设置星期栏的背景和字体颜色
      *
@@ -1448,6 +1859,18 @@ public class CalendarView extends FrameLayout {
         clearSelectRange();
     }
 
+    /**
+     * 多范围选择模式，可选择多个不相交的范围，点击已选的范围取消该范围
+     * 需要使用RangeMonthView、RangeWeekView
+     */
+    public void setSelectMultiRangeMode() {
+        if (mDelegate.getSelectMode() == CalendarViewDelegate.SELECT_MODE_MULTI_RANGE) {
+            return;
+        }
+        mDelegate.setSelectMode(CalendarViewDelegate.SELECT_MODE_MULTI_RANGE);
+        clearSelectRange();
+    }
+
     /**
      * 多选模式
      */
@@ -1571,12 +1994,75 @@ public class CalendarView extends FrameLayout {
      * 重新设置颜色等都需要调用该方法
      */
     public final void update() {
+        mDelegate.invalidateRangeValidator();
+        if (mUpdateDepth > 0) {
+            mPendingUpdates |= UPDATE_ALL;
+            return;
+        }
         mWeekBar.onWeekStartChange(mDelegate.getWeekStart());
         mYearViewPager.update();
         mMonthPager.updateScheme();
         mWeekPager.updateScheme();
     }
 
+    /**
+     * 开始批量更新，与endUpdate()成对调用，可嵌套
+     * 期间addSchemeDate、removeSchemeDate、putMultiSelect、removeMultiSelect、颜色设置等
+     * 只修改数据，界面在最外层endUpdate()后的下一帧统一刷新一次
+     */
+    public final void beginUpdate() {
+        mUpdateDepth++;
+    }
+
+    /**
+     * 结束批量更新
+     */
+    public final void endUpdate() {
+        if (mUpdateDepth == 0) {
+            return;
+        }
+        if (--mUpdateDepth == 0 && (mPendingUpdates != 0 || mPendingDayKeyCount != 0)) {
+            removeCallbacks(mPendingUpdateRunnable);
+            ViewCompat.postOnAnimation(this, mPendingUpdateRunnable);
+        }
+    }
+
+    /**
+     * 执行批量更新期间积累的刷新
+     */
+    private void performPendingUpdates() {
+        if (mUpdateDepth > 0) {
+            return;//又开始了新的批量更新，等它结束
+        }
+        int updates = mPendingUpdates;
+        int[] dayKeys = Arrays.copyOf(mPendingDayKeys, mPendingDayKeyCount);
+        mPendingUpdates = 0;
+        mPendingDayKeyCount = 0;
+        if ((updates & UPDATE_SELECTED_SCHEME) != 0) {
+            mDelegate.clearSelectedScheme();
+            mDelegate.updateSelectCalendarScheme();
+        }
+        if ((updates & UPDATE_STYLE) != 0) {
+            mMonthPager.updateStyle();
+            mWeekPager.updateStyle();
+        }
+        if ((updates & UPDATE_YEAR_STYLE) != 0) {
+            mYearViewPager.updateStyle();
+        }
+        if ((updates & UPDATE_ALL) != 0) {
+            update();
+            return;
+        }
+        if ((updates & UPDATE_SCHEME) != 0) {
+            updateAllSchemes();
+            return;
+        }
+        if (dayKeys.length != 0) {
+            Arrays.sort(dayKeys);
+            updateSchemes(dayKeys);
+        }
+    }
+
     /**
      * 更新周视图
      */
@@ -1753,6 +2239,42 @@ public class CalendarView extends FrameLayout {
     }
 
 
+    /**
+     * 范围选择被拒绝事件
+     */
+    public interface OnCalendarRangeRejectListener {
+
+        /**
+         * 小于最小范围
+         */
+        int REJECT_MIN_RANGE = 1;
+
+        /**
+         * 大于最大范围
+         */
+        int REJECT_MAX_RANGE = 2;
+
+        /**
+         * 范围内有不可用日期
+         */
+        int REJECT_DISABLED_DAY = 3;
+
+        /**
+         * 工作日超过最多数量
+         */
+        int REJECT_MAX_BUSINESS_DAYS = 4;
+
+        /**
+         * 范围被拒绝，开始日期保持不变
+         *
+         * @param start  开始日期
+         * @param end    被拒绝的结束日期
+         * @param reason 原因
+         */
+        void onCalendarRangeReject(Calendar start, Calendar end, int reason);
+    }
+
+
     /**
      * 日历多选事件
      */
@@ -1853,4 +2375,63 @@ public class CalendarView extends FrameLayout {
 
         void onCalendarInterceptClick(Calendar calendar, boolean isClick);
     }
+
+    /**
+     * 标记差异事件
+     */
+    public interface OnSchemeDiffListener {
+        /**
+         * 标记整体替换或清空
+         *
+         * @param added   新增的标记
+         * @param changed 文本、颜色或多标记变化的新标记
+         * @param removed 被移除的旧标记
+         */
+        void onSchemeDiff(List<Calendar> added, List<Calendar> changed, List<Calendar> removed);
+    }
+
+    /**
+     * iCalendar导入进度
+     */
+    public interface OnIcsImportListener {
+        /**
+         * 一批日期已写入
+         *
+         * @param bytesRead  已读取的字节数
+         * @param eventCount 已解析的事件数
+         */
+        void onIcsImportProgress(long bytesRead, int eventCount);
+
+        void onIcsImportComplete(int eventCount);
+
+        void onIcsImportError(Exception e);
+    }
+
+    /**
+     * 按月提供标记，在后台线程调用
+     */
+    public interface SchemeProvider {
+        /**
+         * 加载日期区间内的标记
+         *
+         * @param start 起始日期，包含
+         * @param end   结束日期，包含
+         * @return 有标记的日期，区间外的会被忽略
+         */
+        List<Calendar> loadSchemes(Calendar start, Calendar end);
+    }
+
+    /**
+     * 月视图创建，代替反射构造
+     */
+    public interface MonthViewFactory {
+        BaseMonthView createMonthView(Context context);
+    }
+
+    /**
+     * 周视图创建，代替反射构造
+     */
+    public interface WeekViewFactory {
+        BaseWeekView createWeekView(Context context);
+    }
 }
@@ -24,10 +24,9 @@ import android.util.AttributeSet;
 import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Google规范化的属性委托,
@@ -112,6 +111,11 @@ final class CalendarViewDelegate {
      */
     static final int SELECT_MODE_MULTI = 3;
 
+    /**
+     * 多范围选择模式
+     */
+    static final int SELECT_MODE_MULTI_RANGE = 4;
+
     /**
      * 选择模式
      */
@@ -125,7 +129,7 @@ final class CalendarViewDelegate {
     /**
      * 支持转换的最大农历年份
      */
-    private static final int MAX_YEAR = 2099;
+    static final int MAX_YEAR = 2099;
 
     /**
      * 各种字体颜色，看名字知道对应的地方
@@ -222,6 +226,12 @@ final class CalendarViewDelegate {
      */
     private Class<?> mWeekViewClass;
 
+    /**
+     * 月视图、周视图创建工厂，设置后代替反射创建
+     */
+    CalendarView.MonthViewFactory mMonthViewFactory;
+    CalendarView.WeekViewFactory mWeekViewFactory;
+
     /**
      * 自定义年视图路径
      */
@@ -294,6 +304,26 @@ final class CalendarViewDelegate {
      */
     private Calendar mCurrentDate;
 
+    /**
+     * 月视图前后各预取的月数，0为不预取
+     */
+    private int mPrefetchMonthCount = 2;
+
+    /**
+     * 年视图热力图达到最深颜色的标记数量，0为不使用热力图
+     */
+    private int mYearViewHeatmapLevel;
+
+    /**
+     * 月份日历项缓存，月视图、周视图、年视图共用
+     */
+    final MonthModelCache mMonthModelCache = new MonthModelCache();
+
+    /**
+     * 月视图数据后台预取
+     */
+    final MonthDataPrefetcher mMonthPrefetcher = new MonthDataPrefetcher(mMonthModelCache);
+
 
     private boolean mMonthViewScrollable,
             mWeekViewScrollable,
@@ -306,14 +336,60 @@ final class CalendarViewDelegate {
 
     /**
      * 标记的日期,数量巨大，请使用这个
+     * 写时复制，可在任意线程写入
+     */
+    final SchemeStore mSchemeStore = new SchemeStore();
+
+    /**
+     * 跨天事件索引，整体替换
+     */
+    SpanIndex mSpanIndex = SpanIndex.EMPTY;
+
+    /**
+     * 按月异步加载的标记，未设置SchemeProvider时为null
      */
-    Map<String, Calendar> mSchemeDatesMap;
+    SchemeLoader mSchemeLoader;
+
+    /**
+     * 正在进行的iCalendar导入
+     */
+    IcsImporter mIcsImporter;
 
     /**
      * 日期拦截事件
      */
     CalendarView.OnCalendarInterceptListener mCalendarInterceptListener;
 
+    /**
+     * 不可用日期规则
+     */
+    DisabledDayRules mDisabledDayRules;
+
+    /**
+     * 范围选择被拒绝事件
+     */
+    CalendarView.OnCalendarRangeRejectListener mCalendarRangeRejectListener;
+
+    /**
+     * 范围内有不可用日期时是否拒绝
+     */
+    private boolean isRangeBlockedByDisabledDays;
+
+    /**
+     * 范围内最多的工作日数量，-1为不限制
+     */
+    private int mMaxSelectBusinessDays = -1;
+
+    /**
+     * 范围选择校验，第一次需要时创建
+     */
+    private RangeValidator mRangeValidator;
+
+    /**
+     * 标记差异事件
+     */
+    CalendarView.OnSchemeDiffListener mSchemeDiffListener;
+
     /**
      * 日期选中监听
      */
@@ -378,9 +454,9 @@ final class CalendarViewDelegate {
     Calendar mIndexCalendar;
 
     /**
-     * 多选日历
+     * 多选日历，CalendarUtil.toDayNumber，起始日期为日历范围的最小日期
      */
-    Map<String, Calendar> mSelectedCalendars = new HashMap<>();
+    final DaySet mSelectedCalendars = new DaySet();
 
     private int mMaxMultiSelectSize;
 
@@ -389,6 +465,11 @@ final class CalendarViewDelegate {
      */
     Calendar mSelectedStartRangeCalendar, mSelectedEndRangeCalendar;
 
+    /**
+     * 多范围选择中已选完的范围，mSelectedStartRangeCalendar为正在选择的范围的开始日期
+     */
+    final IntervalSet mSelectedRanges = new IntervalSet();
+
     private int mMinSelectRange, mMaxSelectRange;
 
     CalendarViewDelegate(Context context, @Nullable AttributeSet attrs) {
@@ -538,6 +619,8 @@ final class CalendarViewDelegate {
         this.mMinYearMonth = minYearMonth;
         this.mMaxYear = maxYear;
         this.mMaxYearMonth = maxYearMonth;
+        mSelectedCalendars.setOrigin(CalendarUtil.toDayNumber(minYear, minYearMonth, 1));
+        mRangeValidator = null;
         if (this.mMaxYear < mCurrentDate.getYear()) {
             this.mMaxYear = mCurrentDate.getYear();
         }
@@ -556,6 +639,8 @@ final class CalendarViewDelegate {
         this.mMaxYear = maxYear;
         this.mMaxYearMonth = maxYearMonth;
         this.mMaxYearDay = maxYearDay;
+        mSelectedCalendars.setOrigin(CalendarUtil.toDayNumber(minYear, minYearMonth, minYearDay));
+        mRangeValidator = null;
 //        if (this.mMaxYear < mCurrentDate.getYear()) {
 //            this.mMaxYear = mCurrentDate.getYear();
 //        }
@@ -820,6 +905,23 @@ final class CalendarViewDelegate {
 
     void setWeekStart(int mWeekStart) {
         this.mWeekStart = mWeekStart;
+        mMonthModelCache.invalidate();
+    }
+
+    int getPrefetchMonthCount() {
+        return mPrefetchMonthCount;
+    }
+
+    void setPrefetchMonthCount(int prefetchMonthCount) {
+        this.mPrefetchMonthCount = prefetchMonthCount;
+    }
+
+    int getYearViewHeatmapLevel() {
+        return mYearViewHeatmapLevel;
+    }
+
+    void setYearViewHeatmapLevel(int yearViewHeatmapLevel) {
+        this.mYearViewHeatmapLevel = yearViewHeatmapLevel;
     }
 
     void setDefaultCalendarSelectDay(int defaultCalendarSelect) {
@@ -896,6 +998,7 @@ final class CalendarViewDelegate {
         mCurrentDate.setMonth(CalendarUtil.getDate("MM", d));
         mCurrentDate.setDay(CalendarUtil.getDate("dd", d));
         LunarCalendar.setupLunarCalendar(mCurrentDate);
+        mMonthModelCache.invalidate();
     }
 
     int getCalendarPadding() {
@@ -940,10 +1043,9 @@ final class CalendarViewDelegate {
     }
 
     final void updateSelectCalendarScheme() {
-        if (mSchemeDatesMap != null && mSchemeDatesMap.size() > 0) {
-            String key = mSelectedCalendar.toString();
-            if (mSchemeDatesMap.containsKey(key)) {
-                Calendar d = mSchemeDatesMap.get(key);
+        if (hasSchemes()) {
+            Calendar d = getScheme(mSelectedCalendar);
+            if (d != null) {
                 mSelectedCalendar.mergeScheme(d, getSchemeText());
             }
         } else {
@@ -955,16 +1057,250 @@ final class CalendarViewDelegate {
         if (targetCalendar == null) {
             return;
         }
-        if (mSchemeDatesMap == null || mSchemeDatesMap.size() == 0) {
+        if (!hasSchemes()) {
             return;
         }
-        String key = targetCalendar.toString();
-        if (mSchemeDatesMap.containsKey(key)) {
-            Calendar d = mSchemeDatesMap.get(key);
+        Calendar d = getScheme(targetCalendar);
+        if (d != null) {
             targetCalendar.mergeScheme(d, getSchemeText());
         }
     }
 
+    /**
+     * 日期是否被拦截，先查规则的月掩码，再回调拦截事件
+     *
+     * @param calendar calendar
+     * @return 是否被拦截
+     */
+    final boolean isCalendarIntercept(Calendar calendar) {
+        return (mDisabledDayRules != null && mDisabledDayRules.isDisabled(calendar)) ||
+                (mCalendarInterceptListener != null && mCalendarInterceptListener.onCalendarIntercept(calendar));
+    }
+
+    boolean isRangeBlockedByDisabledDays() {
+        return isRangeBlockedByDisabledDays;
+    }
+
+    void setRangeBlockedByDisabledDays(boolean rangeBlockedByDisabledDays) {
+        isRangeBlockedByDisabledDays = rangeBlockedByDisabledDays;
+    }
+
+    int getMaxSelectBusinessDays() {
+        return mMaxSelectBusinessDays;
+    }
+
+    void setMaxSelectBusinessDays(int maxSelectBusinessDays) {
+        mMaxSelectBusinessDays = maxSelectBusinessDays <= 0 ? -1 : maxSelectBusinessDays;
+    }
+
+    /**
+     * 拦截事件的结果可能变化，如拦截事件、标记变化，下次校验时重新回调，规则的掩码不受影响
+     */
+    final void invalidateRangeValidator() {
+        if (mRangeValidator != null) {
+            mRangeValidator.clearIntercepts();
+        }
+    }
+
+    /**
+     * 校验选择范围，天数直接由日期序号相减，不可用日期和工作日按月掩码计算
+     *
+     * @param start 开始日期
+     * @param end   结束日期，早于开始日期时只校验最大范围
+     * @return 0为可以选择，否则为OnCalendarRangeRejectListener中的原因
+     */
+    final int checkSelectRange(Calendar start, Calendar end) {
+        int startDay = CalendarUtil.toDayNumber(start);
+        int endDay = CalendarUtil.toDayNumber(end);
+        int differ = endDay - startDay;
+        if (differ >= 0 && mMinSelectRange != -1 && mMinSelectRange > differ + 1) {
+            return CalendarView.OnCalendarRangeRejectListener.REJECT_MIN_RANGE;
+        }
+        if (mMaxSelectRange != -1 && mMaxSelectRange < differ + 1) {
+            return CalendarView.OnCalendarRangeRejectListener.REJECT_MAX_RANGE;
+        }
+        if (differ <= 0 || (!isRangeBlockedByDisabledDays && mMaxSelectBusinessDays == -1)) {
+            return 0;
+        }
+        if (mRangeValidator == null) {
+            mRangeValidator = new RangeValidator(this);
+        }
+        if (isRangeBlockedByDisabledDays && mRangeValidator.countDisabled(startDay, endDay) > 0) {
+            return CalendarView.OnCalendarRangeRejectListener.REJECT_DISABLED_DAY;
+        }
+        if (mMaxSelectBusinessDays != -1 &&
+                mRangeValidator.countBusinessDays(startDay, endDay) > mMaxSelectBusinessDays) {
+            return CalendarView.OnCalendarRangeRejectListener.REJECT_MAX_BUSINESS_DAYS;
+        }
+        return 0;
+    }
+
+    /**
+     * 范围选择点击，未选或已选完时作为开始日期，否则作为结束日期
+     *
+     * @param calendar 点击的日期
+     * @return 是否选中，范围被拒绝返回false
+     */
+    final boolean onRangeClick(Calendar calendar) {
+        //优先判断各种直接return的情况，减少代码深度
+        if (mSelectedStartRangeCalendar != null && mSelectedEndRangeCalendar == null) {
+            int reason = checkSelectRange(mSelectedStartRangeCalendar, calendar);
+            if (reason != 0) {
+                onSelectRangeReject(mSelectedStartRangeCalendar, calendar, reason);
+                return false;
+            }
+        }
+
+        if (mSelectedStartRangeCalendar == null || mSelectedEndRangeCalendar != null) {
+            mSelectedStartRangeCalendar = calendar;
+            mSelectedEndRangeCalendar = null;
+        } else {
+            int compare = calendar.compareTo(mSelectedStartRangeCalendar);
+            if (getMinSelectRange() == -1 && compare <= 0) {
+                mSelectedStartRangeCalendar = calendar;
+                mSelectedEndRangeCalendar = null;
+            } else if (compare < 0) {
+                mSelectedStartRangeCalendar = calendar;
+                mSelectedEndRangeCalendar = null;
+            } else if (compare == 0 &&
+                    getMinSelectRange() == 1) {
+                mSelectedEndRangeCalendar = calendar;
+            } else {
+                mSelectedEndRangeCalendar = calendar;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 多范围选择点击，点击已选的范围则取消该范围，否则与范围选择相同，选完后加入已选范围并开始下一个
+     *
+     * @param calendar 点击的日期
+     * @return 是否处理，范围被拒绝返回false
+     */
+    final boolean onMultiRangeClick(Calendar calendar) {
+        int day = CalendarUtil.toDayNumber(calendar);
+        if (mSelectedStartRangeCalendar == null) {
+            int index = mSelectedRanges.indexOf(day);
+            if (index >= 0) {
+                mSelectedRanges.remove(index);
+            } else {
+                mSelectedStartRangeCalendar = calendar;
+            }
+            mSelectedEndRangeCalendar = null;
+            return true;
+        }
+        int start = CalendarUtil.toDayNumber(mSelectedStartRangeCalendar);
+        if (day < start || (day == start && mMinSelectRange == -1)) {
+            mSelectedStartRangeCalendar = calendar;
+            return true;
+        }
+        int reason = checkSelectRange(mSelectedStartRangeCalendar, calendar);
+        if (reason != 0) {
+            onSelectRangeReject(mSelectedStartRangeCalendar, calendar, reason);
+            return false;
+        }
+        mSelectedRanges.add(start, day);
+        mSelectedStartRangeCalendar = null;
+        return true;
+    }
+
+    /**
+     * 范围选择是否已选完，用于onCalendarRangeSelect的isEnd
+     *
+     * @return 是否已选完
+     */
+    final boolean isRangeSelectEnd() {
+        return mSelectMode == SELECT_MODE_MULTI_RANGE ?
+                mSelectedStartRangeCalendar == null : mSelectedEndRangeCalendar != null;
+    }
+
+    /**
+     * 是否在已选的范围内或为正在选择的开始日期，二分查找
+     *
+     * @param calendar calendar
+     * @return 是否选中
+     */
+    final boolean isInSelectRanges(Calendar calendar) {
+        if (mSelectedStartRangeCalendar != null && mSelectedStartRangeCalendar.equals(calendar)) {
+            return true;
+        }
+        return mSelectedRanges.indexOf(CalendarUtil.toDayNumber(calendar)) >= 0;
+    }
+
+    /**
+     * 范围被拒绝，最小、最大范围仍回调onSelectOutOfRange
+     *
+     * @param start  开始日期
+     * @param end    被拒绝的结束日期
+     * @param reason 原因
+     */
+    final void onSelectRangeReject(Calendar start, Calendar end, int reason) {
+        if (mCalendarRangeSelectListener != null) {
+            if (reason == CalendarView.OnCalendarRangeRejectListener.REJECT_MIN_RANGE) {
+                mCalendarRangeSelectListener.onSelectOutOfRange(end, true);
+            } else if (reason == CalendarView.OnCalendarRangeRejectListener.REJECT_MAX_RANGE) {
+                mCalendarRangeSelectListener.onSelectOutOfRange(end, false);
+            }
+        }
+        if (mCalendarRangeRejectListener != null) {
+            mCalendarRangeRejectListener.onCalendarRangeReject(start, end, reason);
+        }
+    }
+
+    /**
+     * 点击被拦截的日期，只有设置了拦截事件时回调
+     *
+     * @param calendar calendar
+     * @param isClick  是否是点击
+     */
+    final void onCalendarInterceptClick(Calendar calendar, boolean isClick) {
+        if (mCalendarInterceptListener != null) {
+            mCalendarInterceptListener.onCalendarInterceptClick(calendar, isClick);
+        }
+    }
+
+    /**
+     * 是否可能有标记
+     *
+     * @return 有标记数据或设置了SchemeProvider
+     */
+    final boolean hasSchemes() {
+        return mSchemeLoader != null || !mSchemeStore.isEmpty();
+    }
+
+    /**
+     * 设置标记加载的月份区间，滑走的月份取消加载
+     *
+     * @param window SchemeLoader.WINDOW_MONTH等，各视图的区间互不影响
+     * @param year   当前年
+     * @param month  当前月
+     * @param before 之前的月数
+     * @param after  之后的月数
+     */
+    final void setSchemeWindow(int window, int year, int month, int before, int after) {
+        if (mSchemeLoader == null) {
+            return;
+        }
+        int index = year * 12 + month - 1;
+        mSchemeLoader.setWindow(window, index - before, index + after);
+    }
+
+    /**
+     * 获取某天的标记，setSchemeDate设置的优先，其次是SchemeProvider加载的
+     *
+     * @param calendar calendar
+     * @return 标记，没有返回null
+     */
+    private Calendar getScheme(Calendar calendar) {
+        int key = calendar.getDayKey();
+        Calendar d = mSchemeStore.get(key);
+        if (d == null && mSchemeLoader != null) {
+            d = mSchemeLoader.get(calendar.getYear(), calendar.getMonth(), key);
+        }
+        return d;
+    }
+
     Calendar createCurrentDate() {
         Calendar calendar = new Calendar();
         calendar.setYear(mCurrentDate.getYear());
@@ -1001,45 +1337,50 @@ final class CalendarViewDelegate {
      * 添加事件标记，来自Map
      */
     final void addSchemesFromMap(List<Calendar> mItems) {
-        if (mSchemeDatesMap == null || mSchemeDatesMap.size() == 0) {
+        if (!hasSchemes()) {
             return;
         }
         for (Calendar a : mItems) {
-            if (mSchemeDatesMap.containsKey(a.toString())) {
-                Calendar d = mSchemeDatesMap.get(a.toString());
-                if(d == null){
-                    continue;
-                }
-                a.setScheme(TextUtils.isEmpty(d.getScheme()) ? getSchemeText() : d.getScheme());
-                a.setSchemeColor(d.getSchemeColor());
-                a.setSchemes(d.getSchemes());
-            } else {
-                a.setScheme("");
-                a.setSchemeColor(0);
-                a.setSchemes(null);
-            }
+            updateItemScheme(a);
         }
     }
 
     /**
-     * 添加数据
+     * 只更新指定日期的标记
      *
-     * @param mSchemeDates mSchemeDates
+     * @param mItems  日历项
+     * @param dayKeys 有序的Calendar.getDayKey()
+     * @return 是否有日历项被更新
      */
-    final void addSchemes(Map<String, Calendar> mSchemeDates) {
-        if (mSchemeDates == null || mSchemeDates.size() == 0) {
-            return;
+    final boolean updateSchemes(List<Calendar> mItems, int[] dayKeys) {
+        if (mItems == null || mItems.size() == 0 || dayKeys.length == 0) {
+            return false;
         }
-        if (this.mSchemeDatesMap == null) {
-            this.mSchemeDatesMap = new HashMap<>();
+        //日历项按日期有序，先判断区间是否相交
+        if (mItems.get(0).getDayKey() > dayKeys[dayKeys.length - 1] ||
+                mItems.get(mItems.size() - 1).getDayKey() < dayKeys[0]) {
+            return false;
         }
-        for (String key : mSchemeDates.keySet()) {
-            this.mSchemeDatesMap.remove(key);
-            Calendar calendar = mSchemeDates.get(key);
-            if(calendar == null){
-                continue;
+        boolean isUpdated = false;
+        for (Calendar a : mItems) {
+            if (Arrays.binarySearch(dayKeys, a.getDayKey()) >= 0) {
+                updateItemScheme(a);
+                isUpdated = true;
             }
-            this.mSchemeDatesMap.put(key,calendar);
+        }
+        return isUpdated;
+    }
+
+    private void updateItemScheme(Calendar a) {
+        Calendar d = getScheme(a);
+        if (d != null) {
+            a.setScheme(TextUtils.isEmpty(d.getScheme()) ? getSchemeText() : d.getScheme());
+            a.setSchemeColor(d.getSchemeColor());
+            a.copySchemes(d);
+        } else {
+            a.setScheme("");
+            a.setSchemeColor(0);
+            a.setSchemes(null);
         }
     }
 
@@ -1049,6 +1390,56 @@ final class CalendarViewDelegate {
     final void clearSelectRange() {
         mSelectedStartRangeCalendar = null;
         mSelectedEndRangeCalendar = null;
+        mSelectedRanges.clear();
+    }
+
+    /**
+     * 获取多选的日期，按日期先后排列，按需创建Calendar
+     *
+     * @return 多选的日期
+     */
+    final List<Calendar> getMultiSelectCalendars() {
+        int[] days = mSelectedCalendars.toDayNumbers();
+        List<Calendar> calendars = new ArrayList<>(days.length);
+        for (int day : days) {
+            Calendar calendar = CalendarUtil.fromDayNumber(day);
+            LunarCalendar.setupLunarCalendar(calendar);
+            updateCalendarScheme(calendar);
+            calendars.add(calendar);
+        }
+        return calendars;
+    }
+
+    /**
+     * 获取选中的范围
+     *
+     * @return 非范围模式或未选完返回null
+     */
+    final CalendarRange getSelectRange() {
+        if (mSelectMode != SELECT_MODE_RANGE ||
+                mSelectedStartRangeCalendar == null ||
+                mSelectedEndRangeCalendar == null) {
+            return null;
+        }
+        return new CalendarRange(this,
+                CalendarUtil.toDayNumber(mSelectedStartRangeCalendar),
+                CalendarUtil.toDayNumber(mSelectedEndRangeCalendar));
+    }
+
+    /**
+     * 获取多范围选择中已选完的范围，按日期先后排列，不包括正在选择的范围
+     *
+     * @return 非多范围模式返回null
+     */
+    final List<CalendarRange> getSelectRanges() {
+        if (mSelectMode != SELECT_MODE_MULTI_RANGE) {
+            return null;
+        }
+        List<CalendarRange> ranges = new ArrayList<>(mSelectedRanges.size());
+        for (int i = 0; i < mSelectedRanges.size(); i++) {
+            ranges.add(new CalendarRange(this, mSelectedRanges.getStart(i), mSelectedRanges.getEnd(i)));
+        }
+        return ranges;
     }
 
     /**
@@ -1060,41 +1451,7 @@ final class CalendarViewDelegate {
         if (mSelectMode != SELECT_MODE_RANGE) {
             return null;
         }
-        List<Calendar> calendars = new ArrayList<>();
-        if (mSelectedStartRangeCalendar == null ||
-                mSelectedEndRangeCalendar == null) {
-            return calendars;
-        }
-        final long ONE_DAY = 1000 * 3600 * 24;
-        java.util.Calendar date = java.util.Calendar.getInstance();
-
-        date.set(mSelectedStartRangeCalendar.getYear(),
-                mSelectedStartRangeCalendar.getMonth() - 1,
-                mSelectedStartRangeCalendar.getDay());//
-
-        long startTimeMills = date.getTimeInMillis();//获得起始时间戳
-
-
-        date.set(mSelectedEndRangeCalendar.getYear(),
-                mSelectedEndRangeCalendar.getMonth() - 1,
-                mSelectedEndRangeCalendar.getDay());//
-        long endTimeMills = date.getTimeInMillis();
-        for (long start = startTimeMills; start <= endTimeMills; start += ONE_DAY) {
-            date.setTimeInMillis(start);
-            Calendar calendar = new Calendar();
-            calendar.setYear(date.get(java.util.Calendar.YEAR));
-            calendar.setMonth(date.get(java.util.Calendar.MONTH) + 1);
-            calendar.setDay(date.get(java.util.Calendar.DAY_OF_MONTH));
-            LunarCalendar.setupLunarCalendar(calendar);
-            updateCalendarScheme(calendar);
-            if (mCalendarInterceptListener != null &&
-                    mCalendarInterceptListener.onCalendarIntercept(calendar)) {
-                continue;
-            }
-
-            calendars.add(calendar);
-        }
-        addSchemesFromMap(calendars);
-        return calendars;
+        CalendarRange range = getSelectRange();
+        return range == null ? new ArrayList<Calendar>() : range.toList();
     }
 }
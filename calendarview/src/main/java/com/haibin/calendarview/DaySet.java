@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import java.util.Arrays;
+
+/**
+ * 日期集合，每天一位，下标为与起始日期相差的天数
+ * 起始日期为日历范围的最小日期，超出时自动扩展，
+ * 添加、移除、查询均为O(1)，按位遍历即为日期顺序，无需排序
+ */
+final class DaySet {
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * 第0位对应的日期，CalendarUtil.toDayNumber
+     */
+    private int mOrigin;
+
+    private long[] mWords = EMPTY;
+
+    private int mSize;
+
+    /**
+     * 设置起始日期，只在集合为空时生效
+     *
+     * @param origin CalendarUtil.toDayNumber
+     */
+    void setOrigin(int origin) {
+        if (mSize == 0) {
+            mOrigin = origin;
+            mWords = EMPTY;
+        }
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean contains(int dayNumber) {
+        int offset = dayNumber - mOrigin;
+        if (offset < 0 || (offset >> 6) >= mWords.length) {
+            return false;
+        }
+        return (mWords[offset >> 6] & (1L << offset)) != 0;
+    }
+
+    /**
+     * @param dayNumber CalendarUtil.toDayNumber
+     * @return 是否新添加
+     */
+    boolean add(int dayNumber) {
+        ensure(dayNumber);
+        int offset = dayNumber - mOrigin;
+        long mask = 1L << offset;
+        if ((mWords[offset >> 6] & mask) != 0) {
+            return false;
+        }
+        mWords[offset >> 6] |= mask;
+        mSize++;
+        return true;
+    }
+
+    /**
+     * @param dayNumber CalendarUtil.toDayNumber
+     * @return 是否存在并移除
+     */
+    boolean remove(int dayNumber) {
+        if (!contains(dayNumber)) {
+            return false;
+        }
+        int offset = dayNumber - mOrigin;
+        mWords[offset >> 6] &= ~(1L << offset);
+        mSize--;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(mWords, 0);
+        mSize = 0;
+    }
+
+    /**
+     * 有序的日期
+     *
+     * @return CalendarUtil.toDayNumber
+     */
+    int[] toDayNumbers() {
+        int[] days = new int[mSize];
+        int count = 0;
+        for (int i = 0; i < mWords.length; i++) {
+            long word = mWords[i];
+            while (word != 0) {
+                days[count++] = mOrigin + (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return days;
+    }
+
+    int getOrigin() {
+        return mOrigin;
+    }
+
+    /**
+     * 用于保存状态
+     *
+     * @return 位数组的副本
+     */
+    long[] toLongArray() {
+        return mWords.clone();
+    }
+
+    /**
+     * 从保存的状态恢复
+     *
+     * @param origin 起始日期
+     * @param words  位数组
+     */
+    void restore(int origin, long[] words) {
+        mOrigin = origin;
+        mWords = words == null ? EMPTY : words.clone();
+        mSize = 0;
+        for (long word : mWords) {
+            mSize += Long.bitCount(word);
+        }
+    }
+
+    /**
+     * 日期超出当前位数组时扩展，向前扩展按整字移动
+     */
+    private void ensure(int dayNumber) {
+        int offset = dayNumber - mOrigin;
+        if (offset < 0) {
+            int shift = (-offset + 63) >> 6;
+            long[] words = new long[mWords.length + shift];
+            System.arraycopy(mWords, 0, words, shift, mWords.length);
+            mWords = words;
+            mOrigin -= shift << 6;
+        } else if ((offset >> 6) >= mWords.length) {
+            mWords = Arrays.copyOf(mWords, Math.max((offset >> 6) + 1, mWords.length * 2));
+        }
+    }
+}
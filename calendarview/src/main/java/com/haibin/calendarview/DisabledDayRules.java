@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import android.util.SparseIntArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 不可用日期规则，代替逐个日期回调的OnCalendarInterceptListener
+ * 规则按月编译为位掩码并缓存，绘制时每个日期只需一次位运算，规则变化后缓存自动失效
+ * 与OnCalendarInterceptListener可同时使用，任一拦截即不可用
+ * 只在主线程使用
+ */
+public final class DisabledDayRules {
+
+    /**
+     * 掩码第0位不对应日期，用于标记已编译
+     */
+    private static final int COMPILED = 1;
+
+    /**
+     * 不可用的星期，第0位为周日
+     */
+    private int mWeekMask;
+
+    /**
+     * 每月不可用的日，第1位为1日
+     */
+    private int mMonthDayMask;
+
+    /**
+     * 每年不可用的日期，(month << 5) | day
+     */
+    private final List<Integer> mYearlyDays = new ArrayList<>();
+
+    /**
+     * 不可用的日期区间，包含，CalendarUtil.toDayNumber
+     */
+    private final List<int[]> mRanges = new ArrayList<>();
+
+    private int mBefore = Integer.MIN_VALUE;
+    private int mAfter = Integer.MAX_VALUE;
+
+    /**
+     * 已编译的月份，键为year * 12 + month - 1
+     */
+    private final SparseIntArray mMasks = new SparseIntArray();
+
+    /**
+     * 规则每次修改加1
+     */
+    private int mVersion;
+
+    /**
+     * 设置不可用的星期
+     *
+     * @param weeks 0为周日，与Calendar.getWeek()一致
+     */
+    public void addWeekdays(int... weeks) {
+        for (int week : weeks) {
+            if (week >= 0 && week < 7) {
+                mWeekMask |= 1 << week;
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * 设置不可用的日期
+     *
+     * @param calendar calendar
+     */
+    public void addDate(Calendar calendar) {
+        addRange(calendar, calendar);
+    }
+
+    /**
+     * 设置不可用的日期区间，包含起止日期
+     *
+     * @param start 开始日期
+     * @param end   结束日期
+     */
+    public void addRange(Calendar start, Calendar end) {
+        if (start == null || end == null) {
+            return;
+        }
+        int s = CalendarUtil.toDayNumber(start);
+        int e = CalendarUtil.toDayNumber(end);
+        if (s > e) {
+            return;
+        }
+        mRanges.add(new int[]{s, e});
+        invalidate();
+    }
+
+    /**
+     * 某日期之前的日期不可用，如今天之前
+     *
+     * @param calendar 第一个可用的日期
+     */
+    public void disableBefore(Calendar calendar) {
+        mBefore = calendar == null ? Integer.MIN_VALUE : CalendarUtil.toDayNumber(calendar);
+        invalidate();
+    }
+
+    /**
+     * 某日期之后的日期不可用
+     *
+     * @param calendar 最后一个可用的日期
+     */
+    public void disableAfter(Calendar calendar) {
+        mAfter = calendar == null ? Integer.MAX_VALUE : CalendarUtil.toDayNumber(calendar);
+        invalidate();
+    }
+
+    /**
+     * 每月的某日不可用
+     *
+     * @param day 日
+     */
+    public void addMonthly(int day) {
+        if (day >= 1 && day <= 31) {
+            mMonthDayMask |= 1 << day;
+            invalidate();
+        }
+    }
+
+    /**
+     * 每年的某月某日不可用
+     *
+     * @param month 月
+     * @param day   日
+     */
+    public void addYearly(int month, int day) {
+        if (month >= 1 && month <= 12 && day >= 1 && day <= 31) {
+            mYearlyDays.add((month << 5) | day);
+            invalidate();
+        }
+    }
+
+    /**
+     * 清除所有规则
+     */
+    public void clear() {
+        mWeekMask = 0;
+        mMonthDayMask = 0;
+        mYearlyDays.clear();
+        mRanges.clear();
+        mBefore = Integer.MIN_VALUE;
+        mAfter = Integer.MAX_VALUE;
+        invalidate();
+    }
+
+    /**
+     * 日期是否不可用
+     *
+     * @param year  年
+     * @param month 月
+     * @param day   日
+     * @return 是否不可用，无效的日期返回false
+     */
+    public boolean isDisabled(int year, int month, int day) {
+        //掩码第0位是已编译的标记，不是日期
+        if (day < 1 || day > 31 || month < 1 || month > 12) {
+            return false;
+        }
+        return (getMonthMask(year, month) & (1 << day)) != 0;
+    }
+
+    boolean isDisabled(Calendar calendar) {
+        return isDisabled(calendar.getYear(), calendar.getMonth(), calendar.getDay());
+    }
+
+    /**
+     * 获取某月的不可用掩码，第d位为d日，第一次获取时编译
+     *
+     * @param year  年
+     * @param month 月
+     * @return 掩码
+     */
+    int getMonthMask(int year, int month) {
+        int key = year * 12 + month - 1;
+        int mask = mMasks.get(key);
+        if (mask == 0) {
+            mask = compile(year, month);
+            mMasks.put(key, mask);
+        }
+        return mask;
+    }
+
+    int getVersion() {
+        return mVersion;
+    }
+
+    private void invalidate() {
+        mMasks.clear();
+        mVersion++;
+    }
+
+    private int compile(int year, int month) {
+        int count = CalendarUtil.getMonthDaysCount(year, month);
+        int first = CalendarUtil.toDayNumber(year, month, 1);
+        int last = first + count - 1;
+        //第1到count位
+        int days = (int) ((1L << (count + 1)) - 2);
+        int mask = mMonthDayMask & days;
+        if (mWeekMask != 0) {
+            int week = CalendarUtil.getWeekFormDate(year, month, 1);
+            for (int day = 1; day <= count; day++) {
+                if ((mWeekMask & (1 << week)) != 0) {
+                    mask |= 1 << day;
+                }
+                week = week == 6 ? 0 : week + 1;
+            }
+        }
+        for (int yearly : mYearlyDays) {
+            if (yearly >> 5 == month && (yearly & 31) <= count) {
+                mask |= 1 << (yearly & 31);
+            }
+        }
+        for (int[] range : mRanges) {
+            mask |= rangeMask(first, last, range[0], range[1]);
+        }
+        mask |= rangeMask(first, last, Integer.MIN_VALUE, mBefore == Integer.MIN_VALUE ? Integer.MIN_VALUE : mBefore - 1);
+        mask |= rangeMask(first, last, mAfter == Integer.MAX_VALUE ? Integer.MAX_VALUE : mAfter + 1, Integer.MAX_VALUE);
+        return mask | COMPILED;
+    }
+
+    /**
+     * 区间与本月相交部分的掩码
+     */
+    private static int rangeMask(int first, int last, int start, int end) {
+        if (start > last || end < first || start > end) {
+            return 0;
+        }
+        int from = Math.max(start, first) - first + 1;
+        int to = Math.min(end, last) - first + 1;
+        return (int) ((1L << (to + 1)) - (1L << from));
+    }
+}
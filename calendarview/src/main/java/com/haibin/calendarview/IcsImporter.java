@@ -0,0 +1,716 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * iCalendar(.ics)流式导入
+ * 逐行解析VEVENT，按RRULE展开到每一天，每积累一批日期就写入SchemeStore，
+ * 内存只保留当前事件和一批日期，已写入的月份可以立即显示
+ * 支持DTSTART、DTEND、DURATION(天、周)、SUMMARY、EXDATE，
+ * RRULE支持DAILY、WEEKLY(BYDAY)、MONTHLY(BYDAY、BYMONTHDAY)、YEARLY(BYDAY、BYMONTHDAY)，
+ * 以及BYMONTH、INTERVAL、COUNT、UNTIL，含有其它BYxxx的规则只保留第一次
+ */
+final class IcsImporter implements Runnable {
+
+    /**
+     * 每批写入的日期数量
+     */
+    private static final int CHUNK_SIZE = 256;
+
+    private static final String[] WEEK_DAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    private final SchemeStore mStore;
+    private final InputStream mInputStream;
+    private final int mSchemeColor;
+    private final int mMinDay, mMaxDay;
+    private final CalendarView.OnIcsImportListener mListener;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private volatile boolean isCancelled;
+
+    /**
+     * 当前批次，键为CalendarUtil.toDayNumber
+     */
+    private final SparseArray<Calendar> mChunk = new SparseArray<>();
+
+    private long mBytesRead;
+    private int mEventCount;
+
+    /**
+     * 时区换算复用的日历
+     */
+    private final Map<String, java.util.Calendar> mZoneCalendars = new HashMap<>();
+    private final java.util.Calendar mLocalCalendar = java.util.Calendar.getInstance();
+
+    IcsImporter(SchemeStore store, InputStream inputStream, int schemeColor,
+                int minDay, int maxDay, CalendarView.OnIcsImportListener listener) {
+        mStore = store;
+        mInputStream = inputStream;
+        mSchemeColor = schemeColor;
+        mMinDay = minDay;
+        mMaxDay = maxDay;
+        mListener = listener;
+    }
+
+    void cancel() {
+        isCancelled = true;
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        InputStream in = new FilterInputStream(mInputStream) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    mBytesRead++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                int n = super.read(buffer, offset, count);
+                if (n > 0) {
+                    mBytesRead += n;
+                }
+                return n;
+            }
+        };
+        try {
+            parse(new BufferedReader(new InputStreamReader(in, "UTF-8")), new OnEventDayListener() {
+                @Override
+                public void onEventDay(int dayNumber, String summary) {
+                    addDay(dayNumber, summary);
+                }
+            });
+            flush();
+            if (!isCancelled) {
+                final int eventCount = mEventCount;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mListener != null && !isCancelled) {
+                            mListener.onIcsImportComplete(eventCount);
+                        }
+                    }
+                });
+            }
+        } catch (final IOException e) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mListener != null && !isCancelled) {
+                        mListener.onIcsImportError(e);
+                    }
+                }
+            });
+        } finally {
+            try {
+                mInputStream.close();
+            } catch (IOException ignored) {
+                //ignore
+            }
+        }
+    }
+
+    /**
+     * 逐行解析，每个事件展开后按天回调
+     *
+     * @param reader   reader
+     * @param listener 事件覆盖的每一天
+     * @throws IOException IOException
+     */
+    void parse(BufferedReader reader, OnEventDayListener listener) throws IOException {
+        Event event = null;
+        String next = reader.readLine();
+        while (next != null && !isCancelled) {
+            //折叠行以空格或制表符开头，拼接到上一行
+            StringBuilder builder = null;
+            String line = next;
+            next = reader.readLine();
+            while (next != null && next.length() > 0 && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                if (builder == null) {
+                    builder = new StringBuilder(line);
+                }
+                builder.append(next, 1, next.length());
+                next = reader.readLine();
+            }
+            if (builder != null) {
+                line = builder.toString();
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String value = line.substring(colon + 1);
+            String[] nameAndParams = line.substring(0, colon).split(";");
+            String name = nameAndParams[0].toUpperCase();
+            if ("BEGIN".equals(name) && "VEVENT".equalsIgnoreCase(value)) {
+                event = new Event();
+                continue;
+            }
+            if (event == null) {
+                continue;
+            }
+            if ("END".equals(name) && "VEVENT".equalsIgnoreCase(value)) {
+                mEventCount++;
+                expand(event, listener);
+                event = null;
+                continue;
+            }
+            String tzid = getParam(nameAndParams, "TZID");
+            switch (name) {
+                case "SUMMARY":
+                    event.summary = unescape(value);
+                    break;
+                case "DTSTART":
+                    int[] start = parseDateTime(value, tzid);
+                    if (start != null) {
+                        event.start = start[0];
+                    }
+                    break;
+                case "DTEND":
+                    int[] end = parseDateTime(value, tzid);
+                    if (end != null) {
+                        //结束时间不包含，全天事件或结束于零点时结束日期为前一天
+                        event.end = end[1] == 0 ? end[0] - 1 : end[0];
+                    }
+                    break;
+                case "DURATION":
+                    event.durationDays = parseDurationDays(value);
+                    break;
+                case "RRULE":
+                    event.rrule = value;
+                    break;
+                case "EXDATE":
+                    for (String date : value.split(",")) {
+                        int[] exDate = parseDateTime(date, tzid);
+                        if (exDate != null) {
+                            event.exDates.add(exDate[0]);
+                        }
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 展开事件，按天回调
+     */
+    private void expand(Event event, OnEventDayListener listener) {
+        if (event.start == Integer.MIN_VALUE) {
+            return;
+        }
+        int length;
+        if (event.end != Integer.MIN_VALUE) {
+            length = Math.max(0, event.end - event.start);
+        } else if (event.durationDays > 0) {
+            length = event.durationDays - 1;
+        } else {
+            length = 0;
+        }
+        if (event.rrule == null) {
+            emit(event, event.start, length, listener);
+            return;
+        }
+        String freq = null;
+        int interval = 1, count = 0, until = Integer.MAX_VALUE;
+        String byDay = null, byMonthDay = null;
+        boolean[] byMonth = null;
+        boolean isSupported = true;
+        for (String part : event.rrule.split(";")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String key = part.substring(0, eq).toUpperCase();
+            String value = part.substring(eq + 1);
+            try {
+                switch (key) {
+                    case "FREQ":
+                        freq = value.toUpperCase();
+                        break;
+                    case "INTERVAL":
+                        interval = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(value);
+                        break;
+                    case "UNTIL":
+                        int[] date = parseDateTime(value, null);
+                        if (date != null) {
+                            until = date[0];
+                        }
+                        break;
+                    case "BYDAY":
+                        byDay = value.toUpperCase();
+                        break;
+                    case "BYMONTHDAY":
+                        byMonthDay = value;
+                        break;
+                    case "BYMONTH":
+                        byMonth = parseMonths(value);
+                        isSupported &= byMonth != null;
+                        break;
+                    case "BYHOUR":
+                    case "BYMINUTE":
+                    case "BYSECOND":
+                        //只影响当天的时间
+                        break;
+                    default:
+                        //BYSETPOS、BYYEARDAY、BYWEEKNO等
+                        isSupported &= !key.startsWith("BY");
+                        break;
+                }
+            } catch (NumberFormatException ignored) {
+                //忽略无法识别的规则
+            }
+        }
+        if ("DAILY".equals(freq)) {
+            isSupported &= byDay == null && byMonthDay == null;
+        } else if ("WEEKLY".equals(freq)) {
+            isSupported &= byMonthDay == null;
+        } else if ("YEARLY".equals(freq) && byMonth == null && byDay != null) {
+            //没有BYMONTH时BYDAY的序号按全年计算，如20MO
+            isSupported &= !hasOrdinal(byDay);
+        }
+        if (!isSupported) {
+            emit(event, event.start, length, listener);
+            return;
+        }
+        int last = Math.min(until, mMaxDay);
+        int[] occurrence = new int[]{0};
+        if ("DAILY".equals(freq)) {
+            for (int day = event.start; day <= last; day += interval) {
+                if (!isInMonths(day, byMonth)) {
+                    continue;
+                }
+                if (!emitOccurrence(event, day, length, count, occurrence, listener)) {
+                    return;
+                }
+            }
+        } else if ("WEEKLY".equals(freq)) {
+            int[] weekDays = parseWeekDays(byDay);
+            if (weekDays.length == 0) {
+                weekDays = new int[]{getWeekDay(event.start)};
+            }
+            int weekStart = event.start - getWeekDay(event.start);
+            for (int week = weekStart; week <= last; week += 7 * interval) {
+                for (int weekDay : weekDays) {
+                    int day = week + weekDay;
+                    if (day < event.start || !isInMonths(day, byMonth)) {
+                        continue;
+                    }
+                    if (day > last || !emitOccurrence(event, day, length, count, occurrence, listener)) {
+                        return;
+                    }
+                }
+            }
+        } else if ("MONTHLY".equals(freq)) {
+            Calendar start = CalendarUtil.fromDayNumber(event.start);
+            List<Integer> days = new ArrayList<>();
+            for (int index = start.getYear() * 12 + start.getMonth() - 1; ; index += interval) {
+                int year = index / 12;
+                int month = index % 12 + 1;
+                if (CalendarUtil.toDayNumber(year, month, 1) > last) {
+                    return;
+                }
+                if (byMonth != null && !byMonth[month]) {
+                    continue;
+                }
+                days.clear();
+                addMonthDays(year, month, start.getDay(), byDay, byMonthDay, days);
+                for (int day : days) {
+                    if (day < event.start) {
+                        continue;
+                    }
+                    if (day > last || !emitOccurrence(event, day, length, count, occurrence, listener)) {
+                        return;
+                    }
+                }
+            }
+        } else if ("YEARLY".equals(freq)) {
+            Calendar start = CalendarUtil.fromDayNumber(event.start);
+            if (byMonth == null) {
+                //有BYDAY或BYMONTHDAY时展开到每个月，否则只取DTSTART的月份
+                byMonth = new boolean[13];
+                if (byDay != null || byMonthDay != null) {
+                    Arrays.fill(byMonth, true);
+                } else {
+                    byMonth[start.getMonth()] = true;
+                }
+            }
+            List<Integer> days = new ArrayList<>();
+            for (int year = start.getYear(); ; year += interval) {
+                if (CalendarUtil.toDayNumber(year, 1, 1) > last) {
+                    return;
+                }
+                days.clear();
+                for (int month = 1; month <= 12; month++) {
+                    if (byMonth[month]) {
+                        addMonthDays(year, month, start.getDay(), byDay, byMonthDay, days);
+                    }
+                }
+                for (int day : days) {
+                    if (day < event.start) {
+                        continue;
+                    }
+                    if (day > last || !emitOccurrence(event, day, length, count, occurrence, listener)) {
+                        return;
+                    }
+                }
+            }
+        } else {
+            //不支持的频率只保留第一次
+            emit(event, event.start, length, listener);
+        }
+    }
+
+    /**
+     * @return 是否继续展开
+     */
+    private boolean emitOccurrence(Event event, int day, int length, int count, int[] occurrence,
+                                   OnEventDayListener listener) {
+        if (isCancelled) {
+            return false;
+        }
+        //COUNT包含被EXDATE排除的日期
+        occurrence[0]++;
+        if (!event.exDates.contains(day)) {
+            emit(event, day, length, listener);
+        }
+        return count <= 0 || occurrence[0] < count;
+    }
+
+    private void emit(Event event, int start, int length, OnEventDayListener listener) {
+        int from = Math.max(start, mMinDay);
+        int to = Math.min(start + length, mMaxDay);
+        for (int day = from; day <= to; day++) {
+            listener.onEventDay(day, event.summary);
+        }
+    }
+
+    /**
+     * 某月中按BYDAY、BYMONTHDAY匹配的日期，两者都有时取交集，都没有时取DTSTART的日
+     */
+    private static void addMonthDays(int year, int month, int startDay, String byDay, String byMonthDay,
+                                     List<Integer> days) {
+        int first = CalendarUtil.toDayNumber(year, month, 1);
+        int count = CalendarUtil.getMonthDaysCount(year, month);
+        if (byDay != null) {
+            for (String item : byDay.split(",")) {
+                if (item.length() < 2) {
+                    continue;
+                }
+                int weekDay = Arrays.asList(WEEK_DAYS).indexOf(item.substring(item.length() - 2));
+                if (weekDay < 0) {
+                    continue;
+                }
+                int ordinal = 0;
+                if (item.length() > 2) {
+                    try {
+                        ordinal = Integer.parseInt(item.substring(0, item.length() - 2).replace("+", ""));
+                    } catch (NumberFormatException e) {
+                        continue;
+                    }
+                }
+                int firstMatch = first + (weekDay - getWeekDay(first) + 7) % 7;
+                if (ordinal == 0) {
+                    for (int day = firstMatch; day < first + count; day += 7) {
+                        days.add(day);
+                    }
+                } else if (ordinal > 0) {
+                    int day = firstMatch + (ordinal - 1) * 7;
+                    if (day < first + count) {
+                        days.add(day);
+                    }
+                } else {
+                    int lastDay = first + count - 1;
+                    int lastMatch = lastDay - (getWeekDay(lastDay) - weekDay + 7) % 7;
+                    int day = lastMatch + (ordinal + 1) * 7;
+                    if (day >= first) {
+                        days.add(day);
+                    }
+                }
+            }
+        }
+        if (byMonthDay != null) {
+            boolean[] monthDays = new boolean[count + 1];
+            for (String item : byMonthDay.split(",")) {
+                int monthDay;
+                try {
+                    monthDay = Integer.parseInt(item.trim());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (monthDay < 0) {
+                    monthDay = count + monthDay + 1;
+                }
+                if (monthDay >= 1 && monthDay <= count) {
+                    monthDays[monthDay] = true;
+                }
+            }
+            if (byDay != null) {
+                for (int i = days.size() - 1; i >= 0 && days.get(i) >= first; i--) {
+                    if (!monthDays[days.get(i) - first + 1]) {
+                        days.remove(i);
+                    }
+                }
+            } else {
+                for (int monthDay = 1; monthDay <= count; monthDay++) {
+                    if (monthDays[monthDay]) {
+                        days.add(first + monthDay - 1);
+                    }
+                }
+            }
+        } else if (byDay == null && startDay <= count) {
+            days.add(first + startDay - 1);
+        }
+        java.util.Collections.sort(days);
+    }
+
+    /**
+     * 解析BYMONTH
+     *
+     * @return 下标为月份，格式错误返回null
+     */
+    private static boolean[] parseMonths(String byMonth) {
+        boolean[] months = new boolean[13];
+        for (String item : byMonth.split(",")) {
+            int month;
+            try {
+                month = Integer.parseInt(item.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (month < 1 || month > 12) {
+                return null;
+            }
+            months[month] = true;
+        }
+        return months;
+    }
+
+    private static boolean isInMonths(int dayNumber, boolean[] months) {
+        return months == null || months[CalendarUtil.fromDayNumber(dayNumber).getMonth()];
+    }
+
+    /**
+     * BYDAY中是否有序号，如-1FR
+     */
+    private static boolean hasOrdinal(String byDay) {
+        for (String item : byDay.split(",")) {
+            if (item.trim().length() > 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 星期，0为周一，与RRULE默认的WKST=MO一致
+     */
+    private static int getWeekDay(int dayNumber) {
+        return (dayNumber + 2) % 7;
+    }
+
+    private static int[] parseWeekDays(String byDay) {
+        if (byDay == null) {
+            return new int[0];
+        }
+        boolean[] days = new boolean[7];
+        for (String item : byDay.split(",")) {
+            int index = Arrays.asList(WEEK_DAYS).indexOf(item.trim());
+            if (index >= 0) {
+                days[index] = true;
+            }
+        }
+        int size = 0;
+        int[] result = new int[7];
+        for (int i = 0; i < 7; i++) {
+            if (days[i]) {
+                result[size++] = i;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 解析DATE或DATE-TIME，UTC或带TZID的时间换算到本地时区
+     *
+     * @return {天数序号, 当天秒数}，格式错误返回null
+     */
+    private int[] parseDateTime(String value, String tzid) {
+        value = value.trim();
+        if (value.length() < 8) {
+            return null;
+        }
+        try {
+            int year = Integer.parseInt(value.substring(0, 4));
+            int month = Integer.parseInt(value.substring(4, 6));
+            int day = Integer.parseInt(value.substring(6, 8));
+            int hour = 0, minute = 0, second = 0;
+            if (value.length() >= 15 && value.charAt(8) == 'T') {
+                hour = Integer.parseInt(value.substring(9, 11));
+                minute = Integer.parseInt(value.substring(11, 13));
+                second = Integer.parseInt(value.substring(13, 15));
+                String zone = value.endsWith("Z") ? "UTC" : tzid;
+                if (zone != null) {
+                    java.util.Calendar calendar = mZoneCalendars.get(zone);
+                    if (calendar == null) {
+                        calendar = java.util.Calendar.getInstance(TimeZone.getTimeZone(zone));
+                        mZoneCalendars.put(zone, calendar);
+                    }
+                    calendar.clear();
+                    calendar.set(year, month - 1, day, hour, minute, second);
+                    mLocalCalendar.setTimeInMillis(calendar.getTimeInMillis());
+                    year = mLocalCalendar.get(java.util.Calendar.YEAR);
+                    month = mLocalCalendar.get(java.util.Calendar.MONTH) + 1;
+                    day = mLocalCalendar.get(java.util.Calendar.DAY_OF_MONTH);
+                    hour = mLocalCalendar.get(java.util.Calendar.HOUR_OF_DAY);
+                    minute = mLocalCalendar.get(java.util.Calendar.MINUTE);
+                    second = mLocalCalendar.get(java.util.Calendar.SECOND);
+                }
+            }
+            if (month < 1 || month > 12 || day < 1 || day > CalendarUtil.getMonthDaysCount(year, month)) {
+                return null;
+            }
+            return new int[]{CalendarUtil.toDayNumber(year, month, day), hour * 3600 + minute * 60 + second};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * DURATION只取天和周，如P3D、P1W、P1DT2H
+     */
+    private static int parseDurationDays(String value) {
+        int days = 0, number = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+            } else if (c == 'W') {
+                days += number * 7;
+                number = 0;
+            } else if (c == 'D') {
+                days += number;
+                number = 0;
+            } else if (c == 'T') {
+                break;
+            } else {
+                number = 0;
+            }
+        }
+        return days;
+    }
+
+    private static String getParam(String[] nameAndParams, String key) {
+        for (int i = 1; i < nameAndParams.length; i++) {
+            String param = nameAndParams[i];
+            if (param.regionMatches(true, 0, key + "=", 0, key.length() + 1)) {
+                return param.substring(key.length() + 1).replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        return value.replace("\\n", " ").replace("\\N", " ").replace("\\,", ",")
+                .replace("\\;", ";").replace("\\\\", "\\");
+    }
+
+    /**
+     * 加入当前批次，写入时与已有的标记合并
+     */
+    private void addDay(int dayNumber, String summary) {
+        Calendar calendar = mChunk.get(dayNumber);
+        if (calendar == null) {
+            calendar = CalendarUtil.fromDayNumber(dayNumber);
+            mChunk.put(dayNumber, calendar);
+        }
+        calendar.addScheme(mSchemeColor, summary);
+        if (mChunk.size() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (mChunk.size() == 0 || isCancelled) {
+            mChunk.clear();
+            return;
+        }
+        List<Calendar> calendars = new ArrayList<>(mChunk.size());
+        for (int i = 0; i < mChunk.size(); i++) {
+            calendars.add(mChunk.valueAt(i));
+        }
+        mChunk.clear();
+        mStore.addAll(calendars);
+        final long bytesRead = mBytesRead;
+        final int eventCount = mEventCount;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mListener != null && !isCancelled) {
+                    mListener.onIcsImportProgress(bytesRead, eventCount);
+                }
+            }
+        });
+    }
+
+    /**
+     * 正在解析的事件
+     */
+    private static final class Event {
+        String summary;
+        int start = Integer.MIN_VALUE;
+        int end = Integer.MIN_VALUE;
+        int durationDays;
+        String rrule;
+        Set<Integer> exDates = new HashSet<>();
+    }
+
+    /**
+     * 事件覆盖的每一天
+     */
+    interface OnEventDayListener {
+        void onEventDay(int dayNumber, String summary);
+    }
+}
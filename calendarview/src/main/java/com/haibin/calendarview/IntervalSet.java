@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import java.util.Arrays;
+
+/**
+ * 有序、互不相交的日期区间集合
+ * 添加时与重叠或相邻的区间合并，查询某天所在区间为二分查找O(log n)
+ */
+final class IntervalSet {
+
+    /**
+     * 起止日期，包含，CalendarUtil.toDayNumber，按开始日期有序
+     */
+    private int[] mStarts = new int[4];
+    private int[] mEnds = new int[4];
+    private int mSize;
+
+    int size() {
+        return mSize;
+    }
+
+    int getStart(int index) {
+        return mStarts[index];
+    }
+
+    int getEnd(int index) {
+        return mEnds[index];
+    }
+
+    /**
+     * 某天所在的区间
+     *
+     * @param day CalendarUtil.toDayNumber
+     * @return 下标，不在任何区间内返回-1
+     */
+    int indexOf(int day) {
+        int index = floor(day);
+        return index >= 0 && mEnds[index] >= day ? index : -1;
+    }
+
+    /**
+     * 添加区间，与重叠或相邻的区间合并
+     *
+     * @param start 开始日期，包含
+     * @param end   结束日期，包含
+     */
+    void add(int start, int end) {
+        if (start > end) {
+            return;
+        }
+        //第一个可能合并的区间，结束日期不早于start - 1
+        int from = floor(start);
+        if (from < 0 || mEnds[from] < start - 1) {
+            from++;
+        }
+        //最后一个可能合并的区间，开始日期不晚于end + 1
+        int to = floor(end + 1);
+        if (from <= to) {
+            start = Math.min(start, mStarts[from]);
+            end = Math.max(end, mEnds[to]);
+        }
+        int removed = to - from + 1;
+        if (removed == 0) {
+            ensureCapacity(mSize + 1);
+            System.arraycopy(mStarts, from, mStarts, from + 1, mSize - from);
+            System.arraycopy(mEnds, from, mEnds, from + 1, mSize - from);
+            mSize++;
+        } else if (removed > 1) {
+            System.arraycopy(mStarts, to + 1, mStarts, from + 1, mSize - to - 1);
+            System.arraycopy(mEnds, to + 1, mEnds, from + 1, mSize - to - 1);
+            mSize -= removed - 1;
+        }
+        mStarts[from] = start;
+        mEnds[from] = end;
+    }
+
+    void remove(int index) {
+        System.arraycopy(mStarts, index + 1, mStarts, index, mSize - index - 1);
+        System.arraycopy(mEnds, index + 1, mEnds, index, mSize - index - 1);
+        mSize--;
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * 开始日期不晚于day的最后一个区间
+     */
+    private int floor(int day) {
+        int lo = 0, hi = mSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mStarts[mid] <= day) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mStarts.length) {
+            mStarts = Arrays.copyOf(mStarts, capacity * 2);
+            mEnds = Arrays.copyOf(mEnds, capacity * 2);
+        }
+    }
+}
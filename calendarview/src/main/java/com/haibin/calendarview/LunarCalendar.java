@@ -15,12 +15,9 @@
  */
 package com.haibin.calendarview;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.text.TextUtils;
 
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * 农历计算相关
@@ -37,9 +34,45 @@ public final class LunarCalendar {
         SolarTermUtil.init(context);
         MONTH_STR = context.getResources().getStringArray(R.array.lunar_first_of_month);
         TRADITION_FESTIVAL_STR = context.getResources().getStringArray(R.array.tradition_festival);
+        TRADITION_FESTIVAL = parseFestivals(TRADITION_FESTIVAL_STR);
         DAY_STR = context.getResources().getStringArray(R.array.lunar_str);
         SPECIAL_FESTIVAL_STR = context.getResources().getStringArray(R.array.special_festivals);
-        SOLAR_CALENDAR = context.getResources().getStringArray(R.array.solar_festival);
+        SOLAR_FESTIVAL = parseFestivals(context.getResources().getStringArray(R.array.solar_festival));
+    }
+
+    /**
+     * 将"MMdd节日"格式的字符串数组解析为按日期下标的数组，下标为 month * 32 + day
+     * 同一天有多个节日时取第一个，与原先逐个匹配的结果一致
+     *
+     * @param festivals 节日字符串数组
+     * @return 按日期下标的节日名称
+     */
+    static String[] parseFestivals(String[] festivals) {
+        String[] days = new String[13 * 32];
+        for (String festival : festivals) {
+            if (festival.length() <= 4 || !isDigits(festival)) {
+                continue;
+            }
+            int month = Integer.parseInt(festival.substring(0, 2));
+            int day = Integer.parseInt(festival.substring(2, 4));
+            if (month < 1 || month > 12 || day < 1 || day > 31) {
+                continue;
+            }
+            int index = month * 32 + day;
+            if (days[index] == null) {
+                days[index] = festival.substring(4);
+            }
+        }
+        return days;
+    }
+
+    private static boolean isDigits(String festival) {
+        for (int i = 0; i < 4; i++) {
+            if (!Character.isDigit(festival.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -52,6 +85,11 @@ public final class LunarCalendar {
      */
     private static String[] TRADITION_FESTIVAL_STR = null;
 
+    /**
+     * 传统农历节日，下标为 month * 32 + day
+     */
+    private static String[] TRADITION_FESTIVAL = null;
+
     /**
      * 农历大写
      */
@@ -63,21 +101,14 @@ public final class LunarCalendar {
     private static String[] SPECIAL_FESTIVAL_STR = null;
 
     /**
-     * 特殊节日、母亲节和父亲节,感恩节等
+     * 公历节日，下标为 month * 32 + day
      */
-    @SuppressLint("UseSparseArrays")
-    private static final Map<Integer, String[]> SPECIAL_FESTIVAL = new HashMap<>();
+    private static String[] SOLAR_FESTIVAL = null;
 
     /**
-     * 公历节日
+     * 是否使用按年预计算的农历、节日表
      */
-    private static String[] SOLAR_CALENDAR = null;
-
-    /**
-     * 保存每年24节气
-     */
-    @SuppressLint("UseSparseArrays")
-    private static final Map<Integer, String[]> SOLAR_TERMS = new HashMap<>();
+    private static volatile boolean USE_DAY_TABLE = true;
 
     /**
      * 返回传统农历节日
@@ -87,22 +118,15 @@ public final class LunarCalendar {
      * @param day   农历日
      * @return 返回传统农历节日
      */
-    private static String getTraditionFestival(int year, int month, int day) {
+    static String getTraditionFestival(int year, int month, int day) {
         if (month == 12) {
             int count = daysInLunarMonth(year, month);
             if (day == count) {
                 return TRADITION_FESTIVAL_STR[0];//除夕
             }
         }
-        String text = getString(month, day);
-        String festivalStr = "";
-        for (String festival : TRADITION_FESTIVAL_STR) {
-            if (festival.contains(text)) {
-                festivalStr = festival.replace(text, "");
-                break;
-            }
-        }
-        return festivalStr;
+        String festival = TRADITION_FESTIVAL[month * 32 + day];
+        return festival == null ? "" : festival;
     }
 
 
@@ -128,7 +152,7 @@ public final class LunarCalendar {
      * @param leap  1==闰月
      * @return 数字转换为汉字日
      */
-    private static String numToChinese(int month, int day, int leap) {
+    static String numToChinese(int month, int day, int leap) {
         if (day == 1) {
             return numToChineseMonth(month, leap);
         }
@@ -191,20 +215,9 @@ public final class LunarCalendar {
      * @param day   公历日期
      * @return 公历节日
      */
-    private static String gregorianFestival(int month, int day) {
-        String text = getString(month, day);
-        String solar = "";
-        for (String aMSolarCalendar : SOLAR_CALENDAR) {
-            if (aMSolarCalendar.contains(text)) {
-                solar = aMSolarCalendar.replace(text, "");
-                break;
-            }
-        }
-        return solar;
-    }
-
-    private static String getString(int month, int day) {
-        return (month >= 10 ? String.valueOf(month) : "0" + month) + (day >= 10 ? day : "0" + day);
+    static String gregorianFestival(int month, int day) {
+        String festival = SOLAR_FESTIVAL[month * 32 + day];
+        return festival == null ? "" : festival;
     }
 
 
@@ -216,21 +229,9 @@ public final class LunarCalendar {
      * @param day   日
      * @return 返回24节气
      */
-    private static String getSolarTerm(int year, int month, int day) {
-        if (!SOLAR_TERMS.containsKey(year)) {
-            SOLAR_TERMS.put(year, SolarTermUtil.getSolarTerms(year));
-        }
-        String[] solarTerm = SOLAR_TERMS.get(year);
-        String text = year + getString(month, day);
-        String solar = "";
-        assert solarTerm != null;
-        for (String solarTermName : solarTerm) {
-            if (solarTermName.contains(text)) {
-                solar = solarTermName.replace(text, "");
-                break;
-            }
-        }
-        return solar;
+    static String getSolarTerm(int year, int month, int day) {
+        int index = SolarTermUtil.getSolarTermIndex(year, month, day);
+        return index == -1 ? "" : SolarTermUtil.getSolarTermName(index);
     }
 
 
@@ -267,65 +268,32 @@ public final class LunarCalendar {
      * @param day   day
      * @return 获取西方节日
      */
-    private static String getSpecialFestival(int year, int month, int day) {
-        if (!SPECIAL_FESTIVAL.containsKey(year)) {
-            SPECIAL_FESTIVAL.put(year, getSpecialFestivals(year));
+    static String getSpecialFestival(int year, int month, int day) {
+        if (month == 5 && day == getWeekdayOfMonth(year, 5, 0, 2)) {
+            return SPECIAL_FESTIVAL_STR[0];
         }
-        String[] specialFestivals = SPECIAL_FESTIVAL.get(year);
-        String text = year + getString(month, day);
-        String solar = "";
-        assert specialFestivals != null;
-        for (String special : specialFestivals) {
-            if (special.contains(text)) {
-                solar = special.replace(text, "");
-                break;
-            }
+        if (month == 6 && day == getWeekdayOfMonth(year, 6, 0, 3)) {
+            return SPECIAL_FESTIVAL_STR[1];
+        }
+        if (month == 11 && day == getWeekdayOfMonth(year, 11, 4, 4)) {
+            return SPECIAL_FESTIVAL_STR[2];
         }
-        return solar;
+        return "";
     }
 
 
     /**
-     * 获取每年的母亲节和父亲节和感恩节
-     * 特殊计算方式的节日
+     * 获取某月第几个星期几的日期
      *
-     * @param year 年
-     * @return 获取每年的母亲节和父亲节、感恩节
+     * @param year  年
+     * @param month 月
+     * @param week  星期，0为周日
+     * @param count 第几个
+     * @return 日期
      */
-    private static String[] getSpecialFestivals(int year) {
-        String[] festivals = new String[3];
-        java.util.Calendar date = java.util.Calendar.getInstance();
-        date.set(year, 4, 1);
-        int week = date.get(java.util.Calendar.DAY_OF_WEEK);
-        int startDiff = 7 - week + 1;
-        if (startDiff == 7) {
-            festivals[0] = dateToString(year, 5, startDiff + 1) + SPECIAL_FESTIVAL_STR[0];
-        } else {
-            festivals[0] = dateToString(year, 5, startDiff + 7 + 1) + SPECIAL_FESTIVAL_STR[0];
-        }
-        date.set(year, 5, 1);
-        week = date.get(java.util.Calendar.DAY_OF_WEEK);
-        startDiff = 7 - week + 1;
-        if (startDiff == 7) {
-            festivals[1] = dateToString(year, 6, startDiff + 7 + 1) + SPECIAL_FESTIVAL_STR[1];
-        } else {
-            festivals[1] = dateToString(year, 6, startDiff + 7 + 7 + 1) + SPECIAL_FESTIVAL_STR[1];
-        }
-
-        date.set(year, 10, 1);
-        week = date.get(java.util.Calendar.DAY_OF_WEEK);
-        startDiff = 7 - week + 1;
-        if (startDiff <= 2) {
-            festivals[2] = dateToString(year, 11, startDiff + 21 + 5) + SPECIAL_FESTIVAL_STR[2];
-        } else {
-            festivals[2] = dateToString(year, 11, startDiff + 14 + 5) + SPECIAL_FESTIVAL_STR[2];
-        }
-        return festivals;
-    }
-
-
-    private static String dateToString(int year, int month, int day) {
-        return year + getString(month, day);
+    private static int getWeekdayOfMonth(int year, int month, int week, int count) {
+        int first = CalendarUtil.getWeekFormDate(year, month, 1);
+        return 1 + (week - first + 7) % 7 + (count - 1) * 7;
     }
 
     /**
@@ -334,23 +302,35 @@ public final class LunarCalendar {
      * @param calendar calendar
      */
     public static void setupLunarCalendar(Calendar calendar) {
+        setupLunarCalendar(calendar, new Calendar());
+    }
+
+    /**
+     * 初始化各种农历、节日，农历对象由调用方提供，便于复用
+     *
+     * @param calendar      calendar
+     * @param lunarCalendar 农历对象，会被完整覆盖
+     */
+    static void setupLunarCalendar(Calendar calendar, Calendar lunarCalendar) {
         int year = calendar.getYear();
         int month = calendar.getMonth();
         int day = calendar.getDay();
+        calendar.setLunarCalendar(lunarCalendar);
+        if (USE_DAY_TABLE && LunarDayTable.isSupport(year)) {
+            setupFromDayTable(calendar, lunarCalendar, year, month, day);
+            return;
+        }
         calendar.setWeekend(CalendarUtil.isWeekend(calendar));
         calendar.setWeek(CalendarUtil.getWeekFormCalendar(calendar));
 
-        Calendar lunarCalendar = new Calendar();
-        calendar.setLunarCalendar(lunarCalendar);
         int[] lunar = LunarUtil.solarToLunar(year, month, day);
         lunarCalendar.setYear(lunar[0]);
         lunarCalendar.setMonth(lunar[1]);
         lunarCalendar.setDay(lunar[2]);
         calendar.setLeapYear(CalendarUtil.isLeapYear(year));
-        if (lunar[3] == 1) {//如果是闰月
-            calendar.setLeapMonth(lunar[1]);
-            lunarCalendar.setLeapMonth(lunar[1]);
-        }
+        int leapMonth = lunar[3] == 1 ? lunar[1] : 0;//如果是闰月
+        calendar.setLeapMonth(leapMonth);
+        lunarCalendar.setLeapMonth(leapMonth);
         String solarTerm = LunarCalendar.getSolarTerm(year, month, day);
         String gregorian = LunarCalendar.gregorianFestival(month, day);
         String festival = getTraditionFestival(lunar[0], lunar[1], lunar[2]);
@@ -375,6 +355,64 @@ public final class LunarCalendar {
         lunarCalendar.setLunar(lunarText);
     }
 
+    /**
+     * 查表初始化农历、节日，结果与逐项计算一致
+     *
+     * @param calendar      calendar
+     * @param lunarCalendar 农历对象
+     * @param year          年
+     * @param month         月
+     * @param day           日
+     */
+    private static void setupFromDayTable(Calendar calendar, Calendar lunarCalendar, int year, int month, int day) {
+        int info = LunarDayTable.get(year, month, day);
+        String[] labels = LunarDayTable.getLabels(info);
+        int week = LunarDayTable.getWeek(info);
+        calendar.setWeekend(week == 0 || week == 6);
+        calendar.setWeek(week);
+
+        int lunarMonth = LunarDayTable.getLunarMonth(info);
+        lunarCalendar.setYear(LunarDayTable.getLunarYear(year, info));
+        lunarCalendar.setMonth(lunarMonth);
+        lunarCalendar.setDay(LunarDayTable.getLunarDay(info));
+        calendar.setLeapYear(CalendarUtil.isLeapYear(year));
+        int leapMonth = LunarDayTable.isLeapMonth(info) ? lunarMonth : 0;//如果是闰月
+        calendar.setLeapMonth(leapMonth);
+        lunarCalendar.setLeapMonth(leapMonth);
+        String solarTerm = labels[LunarDayTable.LABEL_SOLAR_TERM];
+        String gregorian = labels[LunarDayTable.LABEL_GREGORIAN];
+        String festival = labels[LunarDayTable.LABEL_FESTIVAL];
+        String lunarText = labels[LunarDayTable.LABEL_LUNAR];
+        calendar.setSolarTerm(solarTerm);
+        calendar.setGregorianFestival(gregorian);
+        calendar.setTraditionFestival(festival);
+        lunarCalendar.setTraditionFestival(festival);
+        lunarCalendar.setSolarTerm(solarTerm);
+        if (!TextUtils.isEmpty(solarTerm)) {
+            calendar.setLunar(solarTerm);
+        } else if (!TextUtils.isEmpty(gregorian)) {
+            calendar.setLunar(gregorian);
+        } else if (!TextUtils.isEmpty(festival)) {
+            calendar.setLunar(festival);
+        } else {
+            calendar.setLunar(lunarText);
+        }
+        lunarCalendar.setLunar(lunarText);
+    }
+
+    /**
+     * 是否使用按年预计算的农历、节日表，默认开启
+     * 关闭后每个日期都逐项计算，并释放已计算的表
+     *
+     * @param enabled 是否开启
+     */
+    public static void setDayTableEnabled(boolean enabled) {
+        USE_DAY_TABLE = enabled;
+        if (!enabled) {
+            LunarDayTable.clear();
+        }
+    }
+
     /**
      * 获取农历节日
      *
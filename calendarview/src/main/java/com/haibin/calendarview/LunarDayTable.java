@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 农历、节日按天预计算表
+ * 每年首次访问时一次性计算全年，每天压缩为一个int：
+ * 0-4位农历日，5-8位农历月，9位闰月，10位农历年为上一年，11-13位星期，16-31位文字组合下标
+ * 文字组合为 {节气, 公历节日, 农历节日, 农历日期}，全局去重共享
+ */
+final class LunarDayTable {
+
+    private static final int MASK_DAY = 0x1F;
+    private static final int SHIFT_MONTH = 5;
+    private static final int MASK_MONTH = 0xF;
+    private static final int FLAG_LEAP = 1 << 9;
+    private static final int FLAG_PRE_YEAR = 1 << 10;
+    private static final int SHIFT_WEEK = 11;
+    private static final int MASK_WEEK = 0x7;
+    private static final int SHIFT_LABEL = 16;
+
+    static final int LABEL_SOLAR_TERM = 0;
+    static final int LABEL_GREGORIAN = 1;
+    static final int LABEL_FESTIVAL = 2;
+    static final int LABEL_LUNAR = 3;
+
+    /**
+     * 每年一张表，下标为 year - MIN_YEAR，未使用的年份不计算
+     */
+    private static final int[][] YEARS = new int[CalendarViewDelegate.MAX_YEAR - CalendarViewDelegate.MIN_YEAR + 1][];
+
+    /**
+     * 去重后的文字组合，只追加，下标一经分配不再改变，
+     * get()与getLabels()分两次调用，期间clear()也不会使压缩数据中的下标失效
+     */
+    private static final List<String[]> LABELS = new ArrayList<>();
+
+    private static final Map<String, Integer> LABEL_INDEX = new HashMap<>();
+
+    private LunarDayTable() {
+    }
+
+    /**
+     * 是否可以查表
+     *
+     * @param year 公历年
+     * @return 是否在预计算范围内
+     */
+    static boolean isSupport(int year) {
+        return year >= CalendarViewDelegate.MIN_YEAR && year <= CalendarViewDelegate.MAX_YEAR;
+    }
+
+    /**
+     * 获取某天的压缩数据，首次访问该年时计算全年
+     *
+     * @param year  公历年
+     * @param month 公历月
+     * @param day   公历日
+     * @return 压缩数据
+     */
+    static synchronized int get(int year, int month, int day) {
+        int index = year - CalendarViewDelegate.MIN_YEAR;
+        int[] days = YEARS[index];
+        if (days == null) {
+            days = build(year);
+            YEARS[index] = days;
+        }
+        return days[dayOfYear(year, month, day)];
+    }
+
+    /**
+     * 文字组合
+     *
+     * @param info 压缩数据
+     * @return {节气, 公历节日, 农历节日, 农历日期}
+     */
+    static synchronized String[] getLabels(int info) {
+        return LABELS.get(info >>> SHIFT_LABEL);
+    }
+
+    static int getLunarYear(int year, int info) {
+        return (info & FLAG_PRE_YEAR) != 0 ? year - 1 : year;
+    }
+
+    static int getLunarMonth(int info) {
+        return (info >> SHIFT_MONTH) & MASK_MONTH;
+    }
+
+    static int getLunarDay(int info) {
+        return info & MASK_DAY;
+    }
+
+    static boolean isLeapMonth(int info) {
+        return (info & FLAG_LEAP) != 0;
+    }
+
+    /**
+     * @param info 压缩数据
+     * @return 0为周日
+     */
+    static int getWeek(int info) {
+        return (info >> SHIFT_WEEK) & MASK_WEEK;
+    }
+
+    /**
+     * 释放已计算的每年数据，文字组合数量有限且可能正被其它线程使用，保留
+     */
+    static synchronized void clear() {
+        for (int i = 0; i < YEARS.length; i++) {
+            YEARS[i] = null;
+        }
+    }
+
+    private static int dayOfYear(int year, int month, int day) {
+        int count = day - 1;
+        for (int i = 1; i < month; i++) {
+            count += CalendarUtil.getMonthDaysCount(year, i);
+        }
+        return count;
+    }
+
+    /**
+     * 计算一整年
+     *
+     * @param year 公历年
+     * @return 全年每天的压缩数据
+     */
+    private static int[] build(int year) {
+        int[] days = new int[CalendarUtil.isLeapYear(year) ? 366 : 365];
+        java.util.Calendar date = java.util.Calendar.getInstance();
+        date.set(year, 0, 1);
+        int week = date.get(java.util.Calendar.DAY_OF_WEEK) - 1;
+        int index = 0;
+        for (int month = 1; month <= 12; month++) {
+            int count = CalendarUtil.getMonthDaysCount(year, month);
+            for (int day = 1; day <= count; day++) {
+                int[] lunar = LunarUtil.solarToLunar(year, month, day);
+                String solarTerm = LunarCalendar.getSolarTerm(year, month, day);
+                String gregorian = LunarCalendar.gregorianFestival(month, day);
+                if (gregorian.length() == 0) {
+                    gregorian = LunarCalendar.getSpecialFestival(year, month, day);
+                }
+                //1900年1月仍是农历1899年，没有该年的农历数据
+                String festival = lunar[0] < CalendarViewDelegate.MIN_YEAR ? "" :
+                        LunarCalendar.getTraditionFestival(lunar[0], lunar[1], lunar[2]);
+                String lunarText = LunarCalendar.numToChinese(lunar[1], lunar[2], lunar[3]);
+
+                int info = lunar[2] | (lunar[1] << SHIFT_MONTH) | (week << SHIFT_WEEK);
+                if (lunar[3] == 1) {
+                    info |= FLAG_LEAP;
+                }
+                if (lunar[0] != year) {
+                    info |= FLAG_PRE_YEAR;
+                }
+                info |= intern(solarTerm, gregorian, festival, lunarText) << SHIFT_LABEL;
+                days[index++] = info;
+                week = week == 6 ? 0 : week + 1;
+            }
+        }
+        return days;
+    }
+
+    private static int intern(String solarTerm, String gregorian, String festival, String lunarText) {
+        String key = solarTerm + '\n' + gregorian + '\n' + festival + '\n' + lunarText;
+        Integer index = LABEL_INDEX.get(key);
+        if (index != null) {
+            return index;
+        }
+        index = LABELS.size();
+        LABELS.add(new String[]{solarTerm, gregorian, festival, lunarText});
+        LABEL_INDEX.put(key, index);
+        return index;
+    }
+}
@@ -65,13 +65,13 @@ public final class LunarUtil {
         return (data & (((1 << length) - 1) << shift)) >> shift;
     }
 
-    private static long solarToInt(int y, int m, int d) {
+    static long solarToInt(int y, int m, int d) {
         m = (m + 9) % 12;
         y = y - m / 10;
         return 365 * y + y / 4 - y / 100 + y / 400 + (m * 306 + 5) / 10 + (d - 1);
     }
 
-    private static int[] solarFromInt(long g) {
+    static int[] solarFromInt(long g) {
         long y = (10000 * g + 14780) / 3652425;
         long ddd = g - (365 * y + y / 4 - y / 100 + y / 400);
         if (ddd < 0) {
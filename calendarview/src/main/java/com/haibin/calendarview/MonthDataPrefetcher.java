@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import android.os.Process;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 月视图数据预取
+ * 在后台线程提前计算前后几个月的42个日历项（含农历、节日）放入MonthModelCache，
+ * BaseMonthView绑定月份时直接从缓存复制，主线程只负责绘制
+ */
+final class MonthDataPrefetcher {
+
+    private final MonthModelCache mCache;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * 已提交但尚未完成的月份
+     */
+    private final Set<Integer> mPending = new HashSet<>();
+
+    MonthDataPrefetcher(MonthModelCache cache) {
+        mCache = cache;
+        mExecutor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CalendarView-Prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 预取某月前后count个月的数据
+     *
+     * @param delegate delegate
+     * @param year     当前年
+     * @param month    当前月
+     * @param count    前后各预取的月数
+     */
+    void prefetch(CalendarViewDelegate delegate, int year, int month, int count) {
+        if (count <= 0) {
+            return;
+        }
+        int weekStart = delegate.getWeekStart();
+        Calendar current = delegate.getCurrentDay();
+        int min = delegate.getMinYear() * 12 + delegate.getMinYearMonth() - 1;
+        int max = delegate.getMaxYear() * 12 + delegate.getMaxYearMonth() - 1;
+        int index = year * 12 + month - 1;
+        for (int i = 1; i <= count; i++) {
+            if (index + i <= max) {
+                submit((index + i) / 12, (index + i) % 12 + 1, weekStart, current);
+            }
+            if (index - i >= min) {
+                submit((index - i) / 12, (index - i) % 12 + 1, weekStart, current);
+            }
+        }
+    }
+
+    private synchronized void submit(final int year, final int month, final int weekStart, Calendar current) {
+        if (mCache.contains(year, month, weekStart)) {
+            return;
+        }
+        final Integer key = Calendar.toDayKey(year, month, weekStart);
+        if (!mPending.add(key)) {
+            return;
+        }
+        //今天的日期在主线程读取，后台只使用副本
+        final Calendar currentDay = new Calendar();
+        currentDay.setYear(current.getYear());
+        currentDay.setMonth(current.getMonth());
+        currentDay.setDay(current.getDay());
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                mCache.obtain(year, month, weekStart, currentDay);
+                onPrefetched(key);
+            }
+        });
+    }
+
+    private synchronized void onPrefetched(Integer key) {
+        mPending.remove(key);
+    }
+}
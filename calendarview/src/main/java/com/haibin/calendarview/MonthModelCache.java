@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 月份日历项缓存，月视图、周视图、年视图共用
+ * 每个月保存一份42个日历项的模板（含农历、节日，不含标记），按最近使用淘汰
+ * 视图绑定时把模板复制到自己的复用池，模板本身不会交给外部修改
+ */
+final class MonthModelCache {
+
+    /**
+     * 缓存的月份数量上限，可容纳年视图一整年加月视图前后几个月
+     */
+    private static final int MAX_SIZE = 24;
+
+    private final Map<Integer, Calendar[]> mModels = new LinkedHashMap<Integer, Calendar[]>(MAX_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Calendar[]> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * 每次失效递增，丢弃失效前开始计算的结果
+     */
+    private int mGeneration;
+
+    /**
+     * 是否已缓存
+     *
+     * @param year      年
+     * @param month     月
+     * @param weekStart 周起始
+     * @return 是否已缓存
+     */
+    synchronized boolean contains(int year, int month, int weekStart) {
+        return mModels.containsKey(toKey(year, month, weekStart));
+    }
+
+    /**
+     * 获取月份模板，未缓存则计算并缓存，可在后台线程调用
+     *
+     * @param year       年
+     * @param month      月
+     * @param weekStart  周起始
+     * @param currentDay 今天
+     * @return 42个日历项模板，不可修改
+     */
+    Calendar[] obtain(int year, int month, int weekStart, Calendar currentDay) {
+        int key = toKey(year, month, weekStart);
+        int generation;
+        synchronized (this) {
+            Calendar[] model = mModels.get(key);
+            if (model != null) {
+                return model;
+            }
+            generation = mGeneration;
+        }
+        Calendar[] model = new Calendar[42];
+        CalendarUtil.initCalendarForMonthView(year, month, currentDay, weekStart, model, new ArrayList<Calendar>(42));
+        synchronized (this) {
+            if (generation == mGeneration) {
+                mModels.put(key, model);
+            }
+        }
+        return model;
+    }
+
+    /**
+     * 为月视图填充日历项
+     *
+     * @param delegate delegate
+     * @param year     年
+     * @param month    月
+     * @param pool     长度为42的复用池
+     * @param items    输出的日历项，会先清空
+     */
+    void fillMonth(CalendarViewDelegate delegate, int year, int month, Calendar[] pool, List<Calendar> items) {
+        Calendar[] model = obtain(year, month, delegate.getWeekStart(), delegate.getCurrentDay());
+        items.clear();
+        for (int i = 0; i < model.length; i++) {
+            if (pool[i] == null) {
+                pool[i] = new Calendar();
+            }
+            CalendarUtil.copyCalendar(model[i], pool[i]);
+            items.add(pool[i]);
+        }
+    }
+
+    /**
+     * 为周视图填充日历项
+     *
+     * @param delegate delegate
+     * @param calendar 周的第一天
+     * @return 7个日历项
+     */
+    List<Calendar> getWeek(CalendarViewDelegate delegate, Calendar calendar) {
+        int weekStart = delegate.getWeekStart();
+        Calendar[] model = obtain(calendar.getYear(), calendar.getMonth(), weekStart, delegate.getCurrentDay());
+        int index = CalendarUtil.getMonthViewStartDiff(calendar.getYear(), calendar.getMonth(), weekStart) +
+                calendar.getDay() - 1;
+        List<Calendar> items = new ArrayList<>(7);
+        for (int i = 0; i < 7; i++) {
+            Calendar item = new Calendar();
+            CalendarUtil.copyCalendar(model[index + i], item);
+            item.setCurrentMonth(true);
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * 今天日期、周起始改变后全部失效
+     */
+    synchronized void invalidate() {
+        mGeneration++;
+        mModels.clear();
+    }
+
+    private static int toKey(int year, int month, int weekStart) {
+        return (Calendar.toDayKey(year, month, 0) << 3) | weekStart;
+    }
+}
@@ -35,6 +35,7 @@ public abstract class MonthView extends BaseMonthView {
             return;
         mItemWidth = (getWidth() - 2 * mDelegate.getCalendarPadding()) / 7;
         onPreviewHook();
+        drawSpans(canvas);
         int count = mLineCount * 7;
         int d = 0;
         for (int i = 0; i < mLineCount; i++) {
@@ -113,7 +114,7 @@ public abstract class MonthView extends BaseMonthView {
         }
 
         if (onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, true);
+            mDelegate.onCalendarInterceptClick(calendar, true);
             return;
         }
 
@@ -170,7 +171,7 @@ public abstract class MonthView extends BaseMonthView {
 
 
         if (onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, true);
+            mDelegate.onCalendarInterceptClick(calendar, true);
             return false;
         }
 
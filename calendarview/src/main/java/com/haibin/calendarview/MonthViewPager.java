@@ -27,6 +27,7 @@ import androidx.viewpager.widget.PagerAdapter;
 import androidx.viewpager.widget.ViewPager;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -54,6 +55,21 @@ public final class MonthViewPager extends ViewPager {
      */
     private boolean isUsingScrollToCalendar = false;
 
+    /**
+     * 回收的月视图数量上限
+     */
+    private static final int MAX_RECYCLED_VIEWS = 3;
+
+    /**
+     * 移出的月视图，重新绑定日期后复用，避免每次创建视图和画笔
+     */
+    private final List<BaseMonthView> mRecycledViews = new ArrayList<>();
+
+    /**
+     * 缓存月视图的构造函数，避免每次反射查找
+     */
+    private Constructor<?> mMonthViewConstructor;
+
     public MonthViewPager(Context context) {
         this(context, null);
     }
@@ -77,6 +93,7 @@ public final class MonthViewPager extends ViewPager {
         params.height = mCurrentViewHeight;
         setLayoutParams(params);
         init();
+        prefetch(mDelegate.getCurrentDay().getYear(), mDelegate.getCurrentDay().getMonth());
     }
 
     /**
@@ -122,6 +139,9 @@ public final class MonthViewPager extends ViewPager {
                     }
                     mDelegate.mIndexCalendar = calendar;
                 }
+                prefetch(calendar.getYear(), calendar.getMonth());
+                //前后页面的月视图会显示相邻月份的日期
+                mDelegate.setSchemeWindow(SchemeLoader.WINDOW_MONTH, calendar.getYear(), calendar.getMonth(), 2, 2);
                 //月份改变事件
                 if (mDelegate.mMonthChangeListener != null) {
                     mDelegate.mMonthChangeListener.onMonthChange(calendar.getYear(), calendar.getMonth());
@@ -183,6 +203,16 @@ public final class MonthViewPager extends ViewPager {
         });
     }
 
+    /**
+     * 后台预取前后月份的数据，滑动时主线程只需绘制
+     *
+     * @param year  当前年
+     * @param month 当前月
+     */
+    private void prefetch(int year, int month) {
+        mDelegate.mMonthPrefetcher.prefetch(mDelegate, year, month, mDelegate.getPrefetchMonthCount());
+    }
+
     /**
      * 更新月视图的高度
      *
@@ -247,6 +277,7 @@ public final class MonthViewPager extends ViewPager {
      * 更新月视图Class
      */
     void updateMonthViewClass() {
+        clearRecycledViews();
         isUpdateMonthView = true;
         notifyAdapterDataSetChanged();
         isUpdateMonthView = false;
@@ -376,10 +407,10 @@ public final class MonthViewPager extends ViewPager {
      */
     List<Calendar> getCurrentMonthCalendars() {
         BaseMonthView view = findViewWithTag(getCurrentItem());
-        if (view == null) {
+        if (view == null || view.mItems == null) {
             return null;
         }
-        return view.mItems;
+        return view.detachItems();
     }
 
     /**
@@ -430,6 +461,28 @@ public final class MonthViewPager extends ViewPager {
         }
     }
 
+    /**
+     * 更新跨天事件
+     */
+    void updateSpans() {
+        for (int i = 0; i < getChildCount(); i++) {
+            BaseMonthView view = (BaseMonthView) getChildAt(i);
+            view.updateSpans();
+        }
+    }
+
+    /**
+     * 只更新包含指定日期的月份
+     *
+     * @param dayKeys 有序的Calendar.getDayKey()
+     */
+    void updateSchemes(int[] dayKeys) {
+        for (int i = 0; i < getChildCount(); i++) {
+            BaseMonthView view = (BaseMonthView) getChildAt(i);
+            view.updateSchemes(dayKeys);
+        }
+    }
+
     /**
      * 更新当前日期，夜间过度的时候调用这个函数，一般不需要调用
      */
@@ -559,6 +612,33 @@ public final class MonthViewPager extends ViewPager {
         }
     }
 
+    /**
+     * 销毁回收的月视图
+     */
+    private void clearRecycledViews() {
+        for (BaseMonthView view : mRecycledViews) {
+            view.onDestroy();
+        }
+        mRecycledViews.clear();
+        mMonthViewConstructor = null;
+    }
+
+    /**
+     * 创建月视图，优先使用工厂，否则反射创建
+     *
+     * @return 月视图
+     * @throws Exception 反射异常
+     */
+    private BaseMonthView createMonthView() throws Exception {
+        if (mDelegate.mMonthViewFactory != null) {
+            return mDelegate.mMonthViewFactory.createMonthView(getContext());
+        }
+        if (mMonthViewConstructor == null) {
+            mMonthViewConstructor = mDelegate.getMonthViewClass().getConstructor(Context.class);
+        }
+        return (BaseMonthView) mMonthViewConstructor.newInstance(getContext());
+    }
+
     private void notifyAdapterDataSetChanged() {
         if (getAdapter() == null) {
             return;
@@ -617,16 +697,22 @@ public final class MonthViewPager extends ViewPager {
             int year = (position + mDelegate.getMinYearMonth() - 1) / 12 + mDelegate.getMinYear();
             int month = (position + mDelegate.getMinYearMonth() - 1) % 12 + 1;
             BaseMonthView view;
-            try {
-                Constructor constructor = mDelegate.getMonthViewClass().getConstructor(Context.class);
-                view = (BaseMonthView) constructor.newInstance(getContext());
-            } catch (Exception e) {
-                e.printStackTrace();
-                return new DefaultMonthView(getContext());
+            if (!mRecycledViews.isEmpty()) {
+                view = mRecycledViews.remove(mRecycledViews.size() - 1);
+                //回收期间样式可能已改变
+                view.updateStyle();
+                view.updateItemHeight();
+            } else {
+                try {
+                    view = createMonthView();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    return new DefaultMonthView(getContext());
+                }
+                view.mMonthViewPager = MonthViewPager.this;
+                view.mParentLayout = mParentLayout;
+                view.setup(mDelegate);
             }
-            view.mMonthViewPager = MonthViewPager.this;
-            view.mParentLayout = mParentLayout;
-            view.setup(mDelegate);
             view.setTag(position);
             view.initMonthWithDate(year, month);
             view.setSelectedCalendar(mDelegate.mSelectedCalendar);
@@ -636,9 +722,15 @@ public final class MonthViewPager extends ViewPager {
 
         @Override
         public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
-            BaseView view = (BaseView) object;
-            view.onDestroy();
+            BaseMonthView view = (BaseMonthView) object;
+            if (isUpdateMonthView || mRecycledViews.size() >= MAX_RECYCLED_VIEWS) {
+                view.onDestroy();
+                container.removeView(view);
+                return;
+            }
             container.removeView(view);
+            view.resetState();
+            mRecycledViews.add(view);
         }
     }
 
@@ -35,6 +35,7 @@ public abstract class MultiMonthView extends BaseMonthView {
             return;
         mItemWidth = (getWidth() - 2 * mDelegate.getCalendarPadding()) / 7;
         onPreviewHook();
+        drawSpans(canvas);
         int count = mLineCount * 7;
         int d = 0;
         for (int i = 0; i < mLineCount; i++) {
@@ -102,7 +103,7 @@ public abstract class MultiMonthView extends BaseMonthView {
      * @return 日历是否被选中
      */
     protected boolean isCalendarSelected(Calendar calendar) {
-        return !onCalendarIntercept(calendar) && mDelegate.mSelectedCalendars.containsKey(calendar.toString());
+        return !onCalendarIntercept(calendar) && mDelegate.mSelectedCalendars.contains(CalendarUtil.toDayNumber(calendar));
     }
 
     @Override
@@ -122,7 +123,7 @@ public abstract class MultiMonthView extends BaseMonthView {
         }
 
         if (onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, true);
+            mDelegate.onCalendarInterceptClick(calendar, true);
             return;
         }
 
@@ -133,11 +134,9 @@ public abstract class MultiMonthView extends BaseMonthView {
             return;
         }
 
-        String key = calendar.toString();
+        int day = CalendarUtil.toDayNumber(calendar);
 
-        if (mDelegate.mSelectedCalendars.containsKey(key)) {
-            mDelegate.mSelectedCalendars.remove(key);
-        } else {
+        if (!mDelegate.mSelectedCalendars.remove(day)) {
             if (mDelegate.mSelectedCalendars.size() >= mDelegate.getMaxMultiSelectSize()) {
                 if (mDelegate.mCalendarMultiSelectListener != null) {
                     mDelegate.mCalendarMultiSelectListener.onMultiSelectOutOfSize(calendar,
@@ -145,7 +144,7 @@ public abstract class MultiMonthView extends BaseMonthView {
                 }
                 return;
             }
-            mDelegate.mSelectedCalendars.put(key, calendar);
+            mDelegate.mSelectedCalendars.add(day);
         }
 
         mCurrentItem = mItems.indexOf(calendar);
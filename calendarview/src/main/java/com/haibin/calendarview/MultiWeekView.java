@@ -40,6 +40,7 @@ public abstract class MultiWeekView extends BaseWeekView {
             return;
         mItemWidth = (getWidth() - 2 * mDelegate.getCalendarPadding()) / 7;
         onPreviewHook();
+        drawSpans(canvas);
 
         for (int i = 0; i < 7; i++) {
             int x = i * mItemWidth + mDelegate.getCalendarPadding();
@@ -76,7 +77,7 @@ public abstract class MultiWeekView extends BaseWeekView {
      * @return 日历是否被选中
      */
     protected boolean isCalendarSelected(Calendar calendar) {
-        return !onCalendarIntercept(calendar) && mDelegate.mSelectedCalendars.containsKey(calendar.toString());
+        return !onCalendarIntercept(calendar) && mDelegate.mSelectedCalendars.contains(CalendarUtil.toDayNumber(calendar));
     }
 
     @Override
@@ -89,7 +90,7 @@ public abstract class MultiWeekView extends BaseWeekView {
             return;
         }
         if (onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, true);
+            mDelegate.onCalendarInterceptClick(calendar, true);
             return;
         }
         if (!isInRange(calendar)) {
@@ -100,11 +101,9 @@ public abstract class MultiWeekView extends BaseWeekView {
         }
 
 
-        String key = calendar.toString();
+        int day = CalendarUtil.toDayNumber(calendar);
 
-        if (mDelegate.mSelectedCalendars.containsKey(key)) {
-            mDelegate.mSelectedCalendars.remove(key);
-        } else {
+        if (!mDelegate.mSelectedCalendars.remove(day)) {
             if (mDelegate.mSelectedCalendars.size() >= mDelegate.getMaxMultiSelectSize()) {
                 if (mDelegate.mCalendarMultiSelectListener != null) {
                     mDelegate.mCalendarMultiSelectListener.onMultiSelectOutOfSize(calendar,
@@ -112,7 +111,7 @@ public abstract class MultiWeekView extends BaseWeekView {
                 }
                 return;
             }
-            mDelegate.mSelectedCalendars.put(key, calendar);
+            mDelegate.mSelectedCalendars.add(day);
         }
 
         mCurrentItem = mItems.indexOf(calendar);
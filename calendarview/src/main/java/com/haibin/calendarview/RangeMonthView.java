@@ -25,6 +25,12 @@ import android.view.View;
  */
 public abstract class RangeMonthView extends BaseMonthView {
 
+    /**
+     * 绘制时判断前后日期是否选中，复用避免每个日期都创建对象
+     */
+    private final Calendar mPreCalendar = new Calendar();
+    private final Calendar mNextCalendar = new Calendar();
+
     public RangeMonthView(Context context) {
         super(context);
     }
@@ -36,6 +42,7 @@ public abstract class RangeMonthView extends BaseMonthView {
             return;
         mItemWidth = (getWidth() - 2 * mDelegate.getCalendarPadding()) / 7;
         onPreviewHook();
+        drawSpans(canvas);
         int count = mLineCount * 7;
         int d = 0;
         for (int i = 0; i < mLineCount; i++) {
@@ -103,6 +110,9 @@ public abstract class RangeMonthView extends BaseMonthView {
      * @return 日历是否被选中
      */
     protected boolean isCalendarSelected(Calendar calendar) {
+        if (mDelegate.getSelectMode() == CalendarViewDelegate.SELECT_MODE_MULTI_RANGE) {
+            return !onCalendarIntercept(calendar) && mDelegate.isInSelectRanges(calendar);
+        }
         if (mDelegate.mSelectedStartRangeCalendar == null) {
             return false;
         }
@@ -133,7 +143,7 @@ public abstract class RangeMonthView extends BaseMonthView {
         }
 
         if (onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, true);
+            mDelegate.onCalendarInterceptClick(calendar, true);
             return;
         }
 
@@ -144,41 +154,10 @@ public abstract class RangeMonthView extends BaseMonthView {
             return;
         }
 
-        //优先判断各种直接return的情况，减少代码深度
-        if (mDelegate.mSelectedStartRangeCalendar != null && mDelegate.mSelectedEndRangeCalendar == null) {
-            int minDiffer = CalendarUtil.differ(calendar, mDelegate.mSelectedStartRangeCalendar);
-            if (minDiffer >= 0 && mDelegate.getMinSelectRange() != -1 && mDelegate.getMinSelectRange() > minDiffer + 1) {
-                if (mDelegate.mCalendarRangeSelectListener != null) {
-                    mDelegate.mCalendarRangeSelectListener.onSelectOutOfRange(calendar, true);
-                }
-                return;
-            } else if (mDelegate.getMaxSelectRange() != -1 && mDelegate.getMaxSelectRange() <
-                    CalendarUtil.differ(calendar, mDelegate.mSelectedStartRangeCalendar) + 1) {
-                if (mDelegate.mCalendarRangeSelectListener != null) {
-                    mDelegate.mCalendarRangeSelectListener.onSelectOutOfRange(calendar, false);
-                }
-                return;
-            }
-        }
-
-        if (mDelegate.mSelectedStartRangeCalendar == null || mDelegate.mSelectedEndRangeCalendar != null) {
-            mDelegate.mSelectedStartRangeCalendar = calendar;
-            mDelegate.mSelectedEndRangeCalendar = null;
-        } else {
-            int compare = calendar.compareTo(mDelegate.mSelectedStartRangeCalendar);
-            if (mDelegate.getMinSelectRange() == -1 && compare <= 0) {
-                mDelegate.mSelectedStartRangeCalendar = calendar;
-                mDelegate.mSelectedEndRangeCalendar = null;
-            } else if (compare < 0) {
-                mDelegate.mSelectedStartRangeCalendar = calendar;
-                mDelegate.mSelectedEndRangeCalendar = null;
-            } else if (compare == 0 &&
-                    mDelegate.getMinSelectRange() == 1) {
-                mDelegate.mSelectedEndRangeCalendar = calendar;
-            } else {
-                mDelegate.mSelectedEndRangeCalendar = calendar;
-            }
-
+        boolean isSelected = mDelegate.getSelectMode() == CalendarViewDelegate.SELECT_MODE_MULTI_RANGE ?
+                mDelegate.onMultiRangeClick(calendar) : mDelegate.onRangeClick(calendar);
+        if (!isSelected) {
+            return;
         }
 
         mCurrentItem = mItems.indexOf(calendar);
@@ -202,7 +181,7 @@ public abstract class RangeMonthView extends BaseMonthView {
         }
         if (mDelegate.mCalendarRangeSelectListener != null) {
             mDelegate.mCalendarRangeSelectListener.onCalendarRangeSelect(calendar,
-                    mDelegate.mSelectedEndRangeCalendar != null);
+                    mDelegate.isRangeSelectEnd());
         }
     }
 
@@ -218,10 +197,10 @@ public abstract class RangeMonthView extends BaseMonthView {
      * @return 上一个日期是否选中
      */
     protected final boolean isSelectPreCalendar(Calendar calendar) {
-        Calendar preCalendar = CalendarUtil.getPreCalendar(calendar);
-        mDelegate.updateCalendarScheme(preCalendar);
-        return mDelegate.mSelectedStartRangeCalendar != null &&
-                isCalendarSelected(preCalendar);
+        CalendarUtil.setPreCalendar(calendar, mPreCalendar);
+        mPreCalendar.clearScheme();
+        mDelegate.updateCalendarScheme(mPreCalendar);
+        return isCalendarSelected(mPreCalendar);
     }
 
     /**
@@ -231,10 +210,10 @@ public abstract class RangeMonthView extends BaseMonthView {
      * @return 下一个日期是否选中
      */
     protected final boolean isSelectNextCalendar(Calendar calendar) {
-        Calendar nextCalendar = CalendarUtil.getNextCalendar(calendar);
-        mDelegate.updateCalendarScheme(nextCalendar);
-        return mDelegate.mSelectedStartRangeCalendar != null &&
-                isCalendarSelected(nextCalendar);
+        CalendarUtil.setNextCalendar(calendar, mNextCalendar);
+        mNextCalendar.clearScheme();
+        mDelegate.updateCalendarScheme(mNextCalendar);
+        return isCalendarSelected(mNextCalendar);
     }
 
     /**
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import android.util.SparseIntArray;
+
+/**
+ * 范围选择校验，按月统计不可用日期、工作日数量，与DisabledDayRules一样使用月掩码
+ * 规则的掩码直接读取规则的缓存，拦截事件只对校验区间涉及的月份逐日回调一次，结果按月缓存
+ * 拦截事件结果可能变化时只丢弃拦截事件的缓存，规则的掩码不受影响
+ * 日历范围变化后需要重新创建，只在主线程使用
+ */
+final class RangeValidator {
+
+    private final CalendarViewDelegate mDelegate;
+
+    /**
+     * 日历范围，包含，CalendarUtil.toDayNumber
+     */
+    private final int mStart, mEnd;
+
+    /**
+     * 拦截事件的结果，键为year * 12 + month - 1，第d位为d日被拦截，规则已禁用的日期不回调
+     */
+    private final SparseIntArray mInterceptMasks = new SparseIntArray();
+
+    /**
+     * 拦截事件结果对应的规则版本，规则变化后被规则禁用的日期可能需要回调
+     */
+    private int mRulesVersion;
+
+    RangeValidator(CalendarViewDelegate delegate) {
+        mDelegate = delegate;
+        mStart = CalendarUtil.toDayNumber(delegate.getMinYear(), delegate.getMinYearMonth(), delegate.getMinYearDay());
+        mEnd = CalendarUtil.toDayNumber(delegate.getMaxYear(), delegate.getMaxYearMonth(), delegate.getMaxYearDay());
+    }
+
+    /**
+     * 拦截事件、标记变化，下次校验时重新回调
+     */
+    void clearIntercepts() {
+        mInterceptMasks.clear();
+    }
+
+    /**
+     * 区间内不可用的天数，日历范围外的日期不计算
+     *
+     * @param start 开始日期，包含，CalendarUtil.toDayNumber
+     * @param end   结束日期，包含
+     * @return 天数
+     */
+    int countDisabled(int start, int end) {
+        return count(start, end, false);
+    }
+
+    /**
+     * 区间内可用的工作日天数，工作日为周一到周五
+     *
+     * @param start 开始日期，包含，CalendarUtil.toDayNumber
+     * @param end   结束日期，包含
+     * @return 天数
+     */
+    int countBusinessDays(int start, int end) {
+        return count(start, end, true);
+    }
+
+    /**
+     * 逐月按掩码计数
+     */
+    private int count(int start, int end, boolean isBusiness) {
+        int from = Math.max(start, mStart);
+        int to = Math.min(end, mEnd);
+        if (from > to) {
+            return 0;
+        }
+        DisabledDayRules rules = mDelegate.mDisabledDayRules;
+        int version = rules == null ? 0 : rules.getVersion();
+        if (version != mRulesVersion) {
+            mInterceptMasks.clear();
+            mRulesVersion = version;
+        }
+        Calendar calendar = CalendarUtil.fromDayNumber(from);
+        int year = calendar.getYear(), month = calendar.getMonth();
+        int first = from - calendar.getDay() + 1;
+        int count = 0;
+        while (first <= to) {
+            int days = CalendarUtil.getMonthDaysCount(year, month);
+            int range = rangeMask(Math.max(from, first) - first + 1, Math.min(to, first + days - 1) - first + 1);
+            int disabled = getDisabledMask(year, month, first, days);
+            if (isBusiness) {
+                count += Integer.bitCount(getWeekdayMask(year, month, days) & ~disabled & range);
+            } else {
+                count += Integer.bitCount(disabled & range);
+            }
+            first += days;
+            if (++month > 12) {
+                month = 1;
+                year++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 某月不可用日期的掩码，规则禁用的日期加上拦截事件拦截的日期
+     */
+    private int getDisabledMask(int year, int month, int first, int days) {
+        DisabledDayRules rules = mDelegate.mDisabledDayRules;
+        //第0位是规则已编译的标记
+        int mask = rules == null ? 0 : rules.getMonthMask(year, month) & ~1;
+        CalendarView.OnCalendarInterceptListener listener = mDelegate.mCalendarInterceptListener;
+        if (listener == null) {
+            return mask;
+        }
+        int key = year * 12 + month - 1;
+        int index = mInterceptMasks.indexOfKey(key);
+        if (index >= 0) {
+            return mask | mInterceptMasks.valueAt(index);
+        }
+        int intercepted = 0;
+        Calendar today = mDelegate.getCurrentDay();
+        int fromDay = Math.max(1, mStart - first + 1);
+        int toDay = Math.min(days, mEnd - first + 1);
+        for (int day = fromDay; day <= toDay; day++) {
+            if ((mask & (1 << day)) != 0) {
+                continue;
+            }
+            //与绘制时一样设置农历、节日和标记，是否当月始终为true
+            Calendar calendar = new Calendar();
+            calendar.setYear(year);
+            calendar.setMonth(month);
+            calendar.setDay(day);
+            calendar.setCurrentMonth(true);
+            calendar.setCurrentDay(calendar.equals(today));
+            LunarCalendar.setupLunarCalendar(calendar);
+            mDelegate.updateCalendarScheme(calendar);
+            if (listener.onCalendarIntercept(calendar)) {
+                intercepted |= 1 << day;
+            }
+        }
+        mInterceptMasks.put(key, intercepted);
+        return mask | intercepted;
+    }
+
+    /**
+     * 某月周一到周五的掩码
+     */
+    private static int getWeekdayMask(int year, int month, int days) {
+        int mask = 0;
+        int week = CalendarUtil.getWeekFormDate(year, month, 1);
+        for (int day = 1; day <= days; day++) {
+            if (week != 0 && week != 6) {
+                mask |= 1 << day;
+            }
+            week = week == 6 ? 0 : week + 1;
+        }
+        return mask;
+    }
+
+    /**
+     * 第from到to位，1 <= from <= to <= 31
+     */
+    private static int rangeMask(int from, int to) {
+        return (-1 >>> (31 - to)) & (-1 << from);
+    }
+}
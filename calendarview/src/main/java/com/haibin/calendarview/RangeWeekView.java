@@ -25,6 +25,12 @@ import android.view.View;
  */
 public abstract class RangeWeekView extends BaseWeekView {
 
+    /**
+     * 绘制时判断前后日期是否选中，复用避免每个日期都创建对象
+     */
+    private final Calendar mPreCalendar = new Calendar();
+    private final Calendar mNextCalendar = new Calendar();
+
     public RangeWeekView(Context context) {
         super(context);
     }
@@ -40,6 +46,7 @@ public abstract class RangeWeekView extends BaseWeekView {
             return;
         mItemWidth = (getWidth() - 2 * mDelegate.getCalendarPadding()) / 7;
         onPreviewHook();
+        drawSpans(canvas);
 
         for (int i = 0; i < 7; i++) {
             int x = i * mItemWidth + mDelegate.getCalendarPadding();
@@ -76,6 +83,9 @@ public abstract class RangeWeekView extends BaseWeekView {
      * @return 日历是否被选中
      */
     protected boolean isCalendarSelected(Calendar calendar) {
+        if (mDelegate.getSelectMode() == CalendarViewDelegate.SELECT_MODE_MULTI_RANGE) {
+            return !onCalendarIntercept(calendar) && mDelegate.isInSelectRanges(calendar);
+        }
         if (mDelegate.mSelectedStartRangeCalendar == null) {
             return false;
         }
@@ -99,7 +109,7 @@ public abstract class RangeWeekView extends BaseWeekView {
             return;
         }
         if (onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, true);
+            mDelegate.onCalendarInterceptClick(calendar, true);
             return;
         }
         if (!isInRange(calendar)) {
@@ -109,41 +119,10 @@ public abstract class RangeWeekView extends BaseWeekView {
             return;
         }
 
-        //优先判断各种直接return的情况，减少代码深度
-        if (mDelegate.mSelectedStartRangeCalendar != null && mDelegate.mSelectedEndRangeCalendar == null) {
-            int minDiffer = CalendarUtil.differ(calendar, mDelegate.mSelectedStartRangeCalendar);
-            if (minDiffer >= 0 && mDelegate.getMinSelectRange() != -1 && mDelegate.getMinSelectRange() > minDiffer + 1) {
-                if (mDelegate.mCalendarRangeSelectListener != null) {
-                    mDelegate.mCalendarRangeSelectListener.onSelectOutOfRange(calendar, true);
-                }
-                return;
-            } else if (mDelegate.getMaxSelectRange() != -1 && mDelegate.getMaxSelectRange() <
-                    CalendarUtil.differ(calendar, mDelegate.mSelectedStartRangeCalendar) + 1) {
-                if (mDelegate.mCalendarRangeSelectListener != null) {
-                    mDelegate.mCalendarRangeSelectListener.onSelectOutOfRange(calendar, false);
-                }
-                return;
-            }
-        }
-
-        if (mDelegate.mSelectedStartRangeCalendar == null || mDelegate.mSelectedEndRangeCalendar != null) {
-            mDelegate.mSelectedStartRangeCalendar = calendar;
-            mDelegate.mSelectedEndRangeCalendar = null;
-        } else {
-            int compare = calendar.compareTo(mDelegate.mSelectedStartRangeCalendar);
-            if (mDelegate.getMinSelectRange() == -1 && compare <= 0) {
-                mDelegate.mSelectedStartRangeCalendar = calendar;
-                mDelegate.mSelectedEndRangeCalendar = null;
-            } else if (compare < 0) {
-                mDelegate.mSelectedStartRangeCalendar = calendar;
-                mDelegate.mSelectedEndRangeCalendar = null;
-            } else if (compare == 0 &&
-                    mDelegate.getMinSelectRange() == 1) {
-                mDelegate.mSelectedEndRangeCalendar = calendar;
-            } else {
-                mDelegate.mSelectedEndRangeCalendar = calendar;
-            }
-
+        boolean isSelected = mDelegate.getSelectMode() == CalendarViewDelegate.SELECT_MODE_MULTI_RANGE ?
+                mDelegate.onMultiRangeClick(calendar) : mDelegate.onRangeClick(calendar);
+        if (!isSelected) {
+            return;
         }
 
         mCurrentItem = mItems.indexOf(calendar);
@@ -158,7 +137,7 @@ public abstract class RangeWeekView extends BaseWeekView {
 
         if (mDelegate.mCalendarRangeSelectListener != null) {
             mDelegate.mCalendarRangeSelectListener.onCalendarRangeSelect(calendar,
-                    mDelegate.mSelectedEndRangeCalendar != null);
+                    mDelegate.isRangeSelectEnd());
         }
 
         invalidate();
@@ -176,10 +155,10 @@ public abstract class RangeWeekView extends BaseWeekView {
      * @return 上一个日期是否选中
      */
     protected final boolean isSelectPreCalendar(Calendar calendar) {
-        Calendar preCalendar = CalendarUtil.getPreCalendar(calendar);
-        mDelegate.updateCalendarScheme(preCalendar);
-        return mDelegate.mSelectedStartRangeCalendar != null &&
-                isCalendarSelected(preCalendar);
+        CalendarUtil.setPreCalendar(calendar, mPreCalendar);
+        mPreCalendar.clearScheme();
+        mDelegate.updateCalendarScheme(mPreCalendar);
+        return isCalendarSelected(mPreCalendar);
     }
 
     /**
@@ -189,10 +168,10 @@ public abstract class RangeWeekView extends BaseWeekView {
      * @return 下一个日期是否选中
      */
     protected final boolean isSelectNextCalendar(Calendar calendar) {
-        Calendar nextCalendar = CalendarUtil.getNextCalendar(calendar);
-        mDelegate.updateCalendarScheme(nextCalendar);
-        return mDelegate.mSelectedStartRangeCalendar != null &&
-                isCalendarSelected(nextCalendar);
+        CalendarUtil.setNextCalendar(calendar, mNextCalendar);
+        mNextCalendar.clearScheme();
+        mDelegate.updateCalendarScheme(mNextCalendar);
+        return isCalendarSelected(mNextCalendar);
     }
 
     /**
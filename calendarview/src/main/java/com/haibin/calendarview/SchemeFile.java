@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import android.util.SparseArray;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存映射的标记文件，只读
+ * 打开时只映射文件、校验文件头，不解析内容，查找某天时二分查找日期键再解码这一天
+ * 文件格式，整数均为大端：
+ * 文件头 MAGIC、日期数、字符串数
+ * 有序的日期键 Calendar.getDayKey()
+ * 每天记录的起始位置，以int计，多一项作为结尾
+ * 每个字符串的起始位置，以字节计，多一项作为结尾
+ * 每天的记录：标记颜色、标记文本、多标记个数，每个多标记为类型、颜色、文本、其它，文本均为字符串下标，-1为null
+ * UTF-8字符串
+ */
+final class SchemeFile {
+
+    private static final int MAGIC = 0x43565331;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mBuffer;
+    private final int mDayCount;
+    private final int mStringCount;
+    private final int mKeysStart;
+    private final int mRecordOffsetsStart;
+    private final int mStringOffsetsStart;
+    private final int mRecordsStart;
+    private final int mStringsStart;
+
+    /**
+     * 已解码的字符串，多线程重复解码结果相同，不需要同步
+     */
+    private final String[] mStrings;
+
+    private SchemeFile(ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a scheme file");
+        }
+        mDayCount = buffer.getInt(4);
+        mStringCount = buffer.getInt(8);
+        if (mDayCount < 0 || mStringCount < 0) {
+            throw new IOException("corrupted scheme file");
+        }
+        mKeysStart = HEADER_SIZE;
+        mRecordOffsetsStart = mKeysStart + mDayCount * 4;
+        mStringOffsetsStart = mRecordOffsetsStart + (mDayCount + 1) * 4;
+        mRecordsStart = mStringOffsetsStart + (mStringCount + 1) * 4;
+        if (mRecordsStart > buffer.capacity()) {
+            throw new IOException("corrupted scheme file");
+        }
+        mStringsStart = mRecordsStart + buffer.getInt(mRecordOffsetsStart + mDayCount * 4) * 4;
+        if (mStringsStart + buffer.getInt(mStringOffsetsStart + mStringCount * 4) > buffer.capacity()) {
+            throw new IOException("corrupted scheme file");
+        }
+        mStrings = new String[mStringCount];
+    }
+
+    /**
+     * 映射标记文件
+     *
+     * @param file 文件
+     * @return 标记文件
+     * @throws IOException 文件不存在或格式不正确
+     */
+    static SchemeFile open(File file) throws IOException {
+        RandomAccessFile accessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = accessFile.getChannel();
+            //映射在通道关闭后仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SchemeFile(buffer);
+        } finally {
+            accessFile.close();
+        }
+    }
+
+    /**
+     * 写入标记文件，先写临时文件并同步到磁盘再重命名，已映射的旧文件不受影响
+     * 只保存标记文本、颜色和多标记，不保存自定义数据obj
+     *
+     * @param file 文件
+     * @param days 键为Calendar.getDayKey()
+     * @throws IOException IOException
+     */
+    static void write(File file, SparseArray<Calendar> days) throws IOException {
+        int dayCount = days.size();
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[] recordOffsets = new int[dayCount + 1];
+        List<int[]> records = new ArrayList<>(dayCount);
+        for (int i = 0; i < dayCount; i++) {
+            Calendar calendar = days.valueAt(i);
+            int schemeCount = calendar.getSchemesSize();
+            int[] record = new int[3 + schemeCount * 4];
+            record[0] = calendar.getSchemeColor();
+            record[1] = indexOf(calendar.getScheme(), stringIndexes, strings);
+            record[2] = schemeCount;
+            for (int j = 0; j < schemeCount; j++) {
+                Calendar.Scheme scheme = calendar.getSchemeAt(j);
+                record[3 + j * 4] = scheme.getType();
+                record[4 + j * 4] = scheme.getShcemeColor();
+                record[5 + j * 4] = indexOf(scheme.getScheme(), stringIndexes, strings);
+                record[6 + j * 4] = indexOf(scheme.getOther(), stringIndexes, strings);
+            }
+            records.add(record);
+            recordOffsets[i + 1] = recordOffsets[i] + record.length;
+        }
+        byte[][] bytes = new byte[strings.size()][];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = strings.get(i).getBytes(UTF_8);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(temp);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(dayCount);
+            out.writeInt(bytes.length);
+            for (int i = 0; i < dayCount; i++) {
+                out.writeInt(days.keyAt(i));
+            }
+            for (int offset : recordOffsets) {
+                out.writeInt(offset);
+            }
+            int stringOffset = 0;
+            out.writeInt(0);
+            for (byte[] b : bytes) {
+                stringOffset += b.length;
+                out.writeInt(stringOffset);
+            }
+            for (int[] record : records) {
+                for (int value : record) {
+                    out.writeInt(value);
+                }
+            }
+            for (byte[] b : bytes) {
+                out.write(b);
+            }
+            //重命名前写入磁盘，断电后不会得到内容不完整的新文件
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("rename failed: " + file);
+        }
+    }
+
+    private static int indexOf(String string, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (string == null) {
+            return -1;
+        }
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndexes.put(string, index);
+        }
+        return index;
+    }
+
+    int size() {
+        return mDayCount;
+    }
+
+    int keyAt(int index) {
+        return mBuffer.getInt(mKeysStart + index * 4);
+    }
+
+    /**
+     * 二分查找日期键
+     *
+     * @param dayKey Calendar.getDayKey()
+     * @return 下标，不存在返回负数
+     */
+    int indexOfKey(int dayKey) {
+        int lo = 0, hi = mDayCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int key = keyAt(mid);
+            if (key < dayKey) {
+                lo = mid + 1;
+            } else if (key > dayKey) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * 第一个不小于dayKey的日期下标
+     *
+     * @param dayKey Calendar.getDayKey()
+     * @return 下标，都小于dayKey时为size()
+     */
+    int lowerBound(int dayKey) {
+        int index = indexOfKey(dayKey);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    /**
+     * 某天的标记数量，只读取多标记个数，不解码，没有多标记时为1
+     *
+     * @param index 下标
+     * @return 标记数量
+     */
+    int getSchemeCount(int index) {
+        int position = mRecordsStart + mBuffer.getInt(mRecordOffsetsStart + index * 4) * 4;
+        int schemeCount = mBuffer.getInt(position + 8);
+        return schemeCount == 0 ? 1 : schemeCount;
+    }
+
+    /**
+     * 解码某天的标记，每次返回新的Calendar
+     *
+     * @param index 下标
+     * @return 标记
+     */
+    Calendar valueAt(int index) {
+        int key = keyAt(index);
+        int position = mRecordsStart + mBuffer.getInt(mRecordOffsetsStart + index * 4) * 4;
+        Calendar calendar = new Calendar();
+        calendar.setYear(key >> 9);
+        calendar.setMonth((key >> 5) & 15);
+        calendar.setDay(key & 31);
+        calendar.setSchemeColor(mBuffer.getInt(position));
+        calendar.setScheme(getString(mBuffer.getInt(position + 4)));
+        int schemeCount = mBuffer.getInt(position + 8);
+        for (int i = 0; i < schemeCount; i++) {
+            int p = position + 12 + i * 16;
+            calendar.addScheme(mBuffer.getInt(p), mBuffer.getInt(p + 4),
+                    getString(mBuffer.getInt(p + 8)), getString(mBuffer.getInt(p + 12)));
+        }
+        return calendar;
+    }
+
+    Calendar get(int dayKey) {
+        int index = indexOfKey(dayKey);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    private String getString(int index) {
+        if (index < 0 || index >= mStringCount) {
+            return null;
+        }
+        String string = mStrings[index];
+        if (string == null) {
+            int start = mBuffer.getInt(mStringOffsetsStart + index * 4);
+            int end = mBuffer.getInt(mStringOffsetsStart + index * 4 + 4);
+            byte[] bytes = new byte[end - start];
+            //duplicate后读取不影响其它线程的position
+            ByteBuffer buffer = mBuffer.duplicate();
+            buffer.position(mStringsStart + start);
+            buffer.get(bytes);
+            string = new String(bytes, UTF_8);
+            mStrings[index] = string;
+        }
+        return string;
+    }
+}
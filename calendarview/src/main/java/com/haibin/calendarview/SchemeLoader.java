@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按月异步加载事件标记
+ * 视图绑定时缺少某月的标记才向SchemeProvider请求，在后台线程加载，结果回到主线程放入LRU缓存，
+ * 滑走的月份未开始加载的请求会被取消
+ * 除后台加载外所有方法都只在主线程调用
+ */
+final class SchemeLoader {
+
+    /**
+     * 月视图、周视图、年视图各自的可见月份区间
+     */
+    static final int WINDOW_MONTH = 0;
+    static final int WINDOW_WEEK = 1;
+    static final int WINDOW_YEAR = 2;
+
+    /**
+     * 可见区间外缓存的月份数量上限，可见区间内的月份不淘汰
+     * 年视图前后一年共38个月，月视图5个月，周视图3个月，都在区间内
+     */
+    private static final int MAX_SIZE = 36;
+
+    private final CalendarView.SchemeProvider mProvider;
+
+    private final OnSchemeLoadListener mListener;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * 已加载的月份，键为year * 12 + month - 1，值的键为Calendar.getDayKey()
+     */
+    private final Map<Integer, SparseArray<Calendar>> mMonths =
+            new LinkedHashMap<>(MAX_SIZE, 0.75f, true);
+
+    /**
+     * 各视图的可见月份区间，year * 12 + month - 1，包含，未设置时为空区间
+     */
+    private final int[] mWindowMin = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+    private final int[] mWindowMax = {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+
+    /**
+     * 已提交但尚未返回的请求
+     */
+    private final Map<Integer, Future<?>> mPending = new HashMap<>();
+
+    SchemeLoader(CalendarView.SchemeProvider provider, OnSchemeLoadListener listener) {
+        mProvider = provider;
+        mListener = listener;
+        mExecutor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CalendarView-Scheme");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取某天的标记，所在月份未加载时发起请求
+     *
+     * @param year   年
+     * @param month  月
+     * @param dayKey Calendar.getDayKey()
+     * @return 标记，没有或尚未加载返回null
+     */
+    Calendar get(int year, int month, int dayKey) {
+        int index = year * 12 + month - 1;
+        SparseArray<Calendar> schemes = mMonths.get(index);
+        if (schemes == null) {
+            request(index);
+            return null;
+        }
+        return schemes.get(dayKey);
+    }
+
+    /**
+     * 设置某个视图当前可见的月份区间，取消所有视图区间外尚未完成的请求
+     *
+     * @param window WINDOW_MONTH、WINDOW_WEEK或WINDOW_YEAR
+     * @param min    起始月份，year * 12 + month - 1
+     * @param max    结束月份，year * 12 + month - 1
+     */
+    void setWindow(int window, int min, int max) {
+        mWindowMin[window] = min;
+        mWindowMax[window] = max;
+        Iterator<Map.Entry<Integer, Future<?>>> iterator = mPending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Future<?>> entry = iterator.next();
+            if (!isInWindow(entry.getKey())) {
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+        trim();
+    }
+
+    private boolean isInWindow(int index) {
+        for (int i = 0; i < mWindowMin.length; i++) {
+            if (index >= mWindowMin[i] && index <= mWindowMax[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 超出上限时按最近最少使用淘汰可见区间外的月份
+     */
+    private void trim() {
+        Iterator<Integer> iterator = mMonths.keySet().iterator();
+        while (mMonths.size() > MAX_SIZE && iterator.hasNext()) {
+            if (!isInWindow(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 取消所有请求，不再回调
+     */
+    void release() {
+        for (Future<?> future : mPending.values()) {
+            future.cancel(false);
+        }
+        mPending.clear();
+        mHandler.removeCallbacksAndMessages(null);
+        mExecutor.shutdown();
+    }
+
+    private void request(final int index) {
+        if (mPending.containsKey(index) || mExecutor.isShutdown()) {
+            return;
+        }
+        final int year = index / 12;
+        final int month = index % 12 + 1;
+        final Calendar start = new Calendar();
+        start.setYear(year);
+        start.setMonth(month);
+        start.setDay(1);
+        final Calendar end = new Calendar();
+        end.setYear(year);
+        end.setMonth(month);
+        end.setDay(CalendarUtil.getMonthDaysCount(year, month));
+        mPending.put(index, mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                SparseArray<Calendar> schemes = null;
+                try {
+                    schemes = toSchemes(mProvider.loadSchemes(start, end), start.getDayKey(), end.getDayKey());
+                } finally {
+                    final SparseArray<Calendar> result = schemes;
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onLoaded(index, result);
+                        }
+                    });
+                }
+            }
+        }));
+    }
+
+    private void onLoaded(int index, SparseArray<Calendar> schemes) {
+        //已取消或已重置
+        if (mPending.remove(index) == null) {
+            return;
+        }
+        //加载失败不缓存，下次绑定时重试
+        if (schemes == null) {
+            return;
+        }
+        mMonths.put(index, schemes);
+        trim();
+        if (schemes.size() == 0) {
+            return;
+        }
+        int[] dayKeys = new int[schemes.size()];
+        for (int i = 0; i < dayKeys.length; i++) {
+            dayKeys[i] = schemes.keyAt(i);
+        }
+        mListener.onSchemeLoaded(dayKeys);
+    }
+
+    /**
+     * 只保留月份区间内的有效标记
+     */
+    private static SparseArray<Calendar> toSchemes(List<Calendar> calendars, int startKey, int endKey) {
+        if (calendars == null) {
+            return new SparseArray<>(0);
+        }
+        SparseArray<Calendar> schemes = new SparseArray<>(calendars.size());
+        for (Calendar calendar : calendars) {
+            if (calendar == null) {
+                continue;
+            }
+            int key = calendar.getDayKey();
+            if (key >= startKey && key <= endKey) {
+                schemes.put(key, calendar);
+            }
+        }
+        return schemes;
+    }
+
+    /**
+     * 某月标记加载完成
+     */
+    interface OnSchemeLoadListener {
+        /**
+         * @param dayKeys 有序的Calendar.getDayKey()
+         */
+        void onSchemeLoaded(int[] dayKeys);
+    }
+}
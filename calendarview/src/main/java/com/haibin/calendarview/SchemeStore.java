@@ -0,0 +1,865 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.SparseArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 事件标记存储，写时复制
+ * 任意线程都可以写入，写入时复制一份新的快照，通过volatile引用一次性发布，
+ * 主线程绘制只读取快照，快照发布后不再修改
+ * 单日写入先暂存，下次读取或其它写入时合并为一次复制，回调也post到下一次消息，
+ * 主线程连续写入N天不会复制N次
+ * 批量写入先按日期排序，与快照按顺序归并
+ * 变化在主线程回调，后台线程的多次写入合并为一次回调
+ */
+final class SchemeStore {
+
+    /**
+     * 当前快照
+     */
+    private volatile Snapshot mSnapshot = Snapshot.EMPTY;
+
+    /**
+     * 内存映射的标记文件，作为底层数据，快照中的标记优先
+     */
+    private volatile SchemeFile mFile;
+
+    /**
+     * 从标记文件中移除的日期，有序，写时复制
+     */
+    private volatile int[] mFileRemoved = new int[0];
+
+    /**
+     * 尚未合并到快照的单日写入，由this保护
+     */
+    private final List<Calendar> mPendingPuts = new ArrayList<>();
+
+    /**
+     * 是否有尚未合并的单日写入，读取时不加锁判断
+     */
+    private volatile boolean hasPendingPuts;
+
+    /**
+     * 打开标记文件时的每月计数，快照、文件或移除的日期变化后重建
+     */
+    private volatile FileCounts mFileCounts;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private OnSchemeChangeListener mListener;
+
+    /**
+     * 后台写入后尚未回调的变化，均由this保护
+     */
+    private boolean isPosted;
+    private boolean isPendingAll;
+    private int[] mPendingDayKeys = new int[16];
+    private int mPendingDayKeyCount;
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            int[] dayKeys = null;
+            synchronized (SchemeStore.this) {
+                isPosted = false;
+                if (!isPendingAll) {
+                    dayKeys = Arrays.copyOf(mPendingDayKeys, mPendingDayKeyCount);
+                }
+                isPendingAll = false;
+                mPendingDayKeyCount = 0;
+            }
+            if (dayKeys != null) {
+                Arrays.sort(dayKeys);
+            }
+            notifyChanged(dayKeys);
+        }
+    };
+
+    /**
+     * 只在主线程设置
+     *
+     * @param listener listener
+     */
+    void setOnSchemeChangeListener(OnSchemeChangeListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 获取当前快照，不可修改
+     *
+     * @return 键为Calendar.getDayKey()
+     */
+    SparseArray<Calendar> snapshot() {
+        return current().mDays;
+    }
+
+    Calendar get(int dayKey) {
+        Calendar calendar = current().mDays.get(dayKey);
+        if (calendar == null) {
+            calendar = getFromFile(dayKey);
+        }
+        return calendar;
+    }
+
+    private Calendar getFromFile(int dayKey) {
+        SchemeFile file = mFile;
+        if (file == null || Arrays.binarySearch(mFileRemoved, dayKey) >= 0) {
+            return null;
+        }
+        return file.get(dayKey);
+    }
+
+    /**
+     * 是否没有任何标记
+     *
+     * @return 快照为空且没有标记文件
+     */
+    boolean isEmpty() {
+        return current().mDays.size() == 0 && mFile == null;
+    }
+
+    /**
+     * 设置标记文件，可在任意线程调用
+     *
+     * @param file 标记文件，null则取消
+     */
+    void setFile(SchemeFile file) {
+        synchronized (this) {
+            mFile = file;
+            mFileRemoved = new int[0];
+        }
+        dispatch(null);
+    }
+
+    /**
+     * 合并标记文件和快照写入文件，可在任意线程调用
+     *
+     * @param file 文件
+     * @throws IOException IOException
+     */
+    void save(File file) throws IOException {
+        SparseArray<Calendar> days;
+        SchemeFile schemeFile;
+        int[] removed;
+        synchronized (this) {
+            flushPendingPuts();
+            days = mSnapshot.mDays;
+            schemeFile = mFile;
+            removed = mFileRemoved;
+        }
+        if (schemeFile != null) {
+            //两者均有序，按顺序归并
+            SparseArray<Calendar> merged = new SparseArray<>(days.size() + schemeFile.size());
+            int i = 0, j = 0;
+            while (i < days.size() || j < schemeFile.size()) {
+                int key = i < days.size() ? days.keyAt(i) : Integer.MAX_VALUE;
+                int fileKey = j < schemeFile.size() ? schemeFile.keyAt(j) : Integer.MAX_VALUE;
+                if (key <= fileKey) {
+                    merged.append(key, days.valueAt(i++));
+                    if (key == fileKey) {
+                        j++;
+                    }
+                } else {
+                    if (Arrays.binarySearch(removed, fileKey) < 0) {
+                        merged.append(fileKey, schemeFile.valueAt(j));
+                    }
+                    j++;
+                }
+            }
+            days = merged;
+        }
+        SchemeFile.write(file, days);
+    }
+
+    int size() {
+        return current().mDays.size();
+    }
+
+    /**
+     * 某月每天的标记数量，包括标记文件中未被覆盖、未被移除的日期
+     *
+     * @param year  年
+     * @param month 月
+     * @return 下标为日，下标0为整月合计，不可修改，没有标记返回null
+     */
+    int[] getDayCounts(int year, int month) {
+        int monthKey = toMonthKey(Calendar.toDayKey(year, month, 0));
+        if (mFile == null) {
+            return current().mCounts.get(monthKey);
+        }
+        Snapshot snapshot;
+        SchemeFile file;
+        int[] removed;
+        synchronized (this) {
+            flushPendingPuts();
+            snapshot = mSnapshot;
+            file = mFile;
+            removed = mFileRemoved;
+        }
+        if (file == null) {
+            return snapshot.mCounts.get(monthKey);
+        }
+        FileCounts counts = mFileCounts;
+        if (counts == null || counts.mSnapshot != snapshot || counts.mFile != file || counts.mRemoved != removed) {
+            counts = new FileCounts(snapshot, file, removed);
+            mFileCounts = counts;
+        }
+        return counts.get(monthKey);
+    }
+
+    /**
+     * 某月的标记数量
+     *
+     * @param year  年
+     * @param month 月
+     * @return 标记数量
+     */
+    int getMonthCount(int year, int month) {
+        int[] counts = getDayCounts(year, month);
+        return counts == null ? 0 : counts[0];
+    }
+
+    /**
+     * 某年的标记数量
+     *
+     * @param year 年
+     * @return 标记数量
+     */
+    int getYearCount(int year) {
+        int count = 0;
+        for (int month = 1; month <= 12; month++) {
+            int[] dayCounts = getDayCounts(year, month);
+            if (dayCounts != null) {
+                count += dayCounts[0];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 整体替换，与旧的快照比较后只回调变化的日期
+     *
+     * @param schemes 键为"yyyyMMdd"或任意字符串
+     */
+    void replace(Map<String, Calendar> schemes) {
+        Editor editor = new Editor(Snapshot.EMPTY);
+        if (schemes != null) {
+            int[] keys = new int[schemes.size()];
+            Calendar[] values = new Calendar[keys.length];
+            int count = 0;
+            for (Map.Entry<String, Calendar> entry : schemes.entrySet()) {
+                Calendar calendar = entry.getValue();
+                if (calendar != null) {
+                    keys[count] = toDayKey(entry.getKey(), calendar);
+                    values[count++] = calendar;
+                }
+            }
+            count = unique(keys, values, sort(keys, values, count));
+            editor.putAll(keys, values, count);
+        }
+        Snapshot snapshot = editor.build();
+        Snapshot old;
+        synchronized (this) {
+            flushPendingPuts();
+            old = mSnapshot;
+            mSnapshot = snapshot;
+        }
+        diff(old.mDays, snapshot.mDays);
+    }
+
+    /**
+     * 清空
+     */
+    void clear() {
+        Snapshot old;
+        synchronized (this) {
+            flushPendingPuts();
+            old = mSnapshot;
+            mSnapshot = Snapshot.EMPTY;
+        }
+        diff(old.mDays, Snapshot.EMPTY.mDays);
+    }
+
+    /**
+     * 添加或替换，值为null则移除
+     *
+     * @param schemes 键为"yyyyMMdd"或任意字符串
+     */
+    void putAll(Map<String, Calendar> schemes) {
+        if (schemes == null || schemes.size() == 0) {
+            return;
+        }
+        int[] keys = new int[schemes.size()];
+        Calendar[] values = new Calendar[keys.length];
+        int count = 0;
+        for (Map.Entry<String, Calendar> entry : schemes.entrySet()) {
+            keys[count] = toDayKey(entry.getKey(), entry.getValue());
+            values[count++] = entry.getValue();
+        }
+        count = unique(keys, values, sort(keys, values, count));
+        if (count == 0) {
+            return;
+        }
+        synchronized (this) {
+            Editor editor = edit();
+            editor.putAll(keys, values, count);
+            mSnapshot = editor.build();
+        }
+        dispatch(Arrays.copyOf(keys, count));
+    }
+
+    /**
+     * 追加多标记，已有标记的日期复制一份后追加，已发布的日历不会被修改
+     *
+     * @param calendars 每天一个，只使用其中的多标记
+     */
+    void addAll(List<Calendar> calendars) {
+        if (calendars == null || calendars.size() == 0) {
+            return;
+        }
+        int[] keys = new int[calendars.size()];
+        Calendar[] values = new Calendar[keys.length];
+        int count = 0;
+        for (Calendar calendar : calendars) {
+            keys[count] = calendar.getDayKey();
+            values[count++] = calendar;
+        }
+        count = sort(keys, values, count);
+        if (count == 0) {
+            return;
+        }
+        synchronized (this) {
+            Editor editor = edit();
+            for (int i = 0; i < count; i++) {
+                int key = keys[i];
+                Calendar calendar = values[i];
+                //同一天出现多次时在前一个合并结果上追加
+                Calendar old = i > 0 && keys[i - 1] == key ? values[i - 1] : editor.get(key);
+                if (old == null) {
+                    old = getFromFile(key);
+                }
+                if (old == null) {
+                    continue;
+                }
+                Calendar merged = new Calendar();
+                merged.setYear(old.getYear());
+                merged.setMonth(old.getMonth());
+                merged.setDay(old.getDay());
+                merged.setScheme(old.getScheme());
+                merged.setSchemeColor(old.getSchemeColor());
+                merged.copySchemes(old);
+                if (merged.getSchemeIndexes() == null && merged.getSchemesSize() != 0) {
+                    merged.setSchemes(new ArrayList<>(old.getSchemes()));
+                }
+                for (int j = 0; j < calendar.getSchemesSize(); j++) {
+                    Calendar.Scheme scheme = calendar.getSchemeAt(j);
+                    merged.addScheme(scheme.getType(), scheme.getShcemeColor(), scheme.getScheme(), scheme.getOther());
+                }
+                values[i] = merged;
+            }
+            count = unique(keys, values, count);
+            editor.putAll(keys, values, count);
+            mSnapshot = editor.build();
+        }
+        dispatch(Arrays.copyOf(keys, count));
+    }
+
+    /**
+     * 暂存单日写入，下次读取时合并，主线程写入也post回调，
+     * 回调中的读取不会每写入一天就合并一次
+     *
+     * @param calendar calendar
+     */
+    void put(Calendar calendar) {
+        synchronized (this) {
+            mPendingPuts.add(calendar);
+            hasPendingPuts = true;
+        }
+        post(new int[]{calendar.getDayKey()});
+    }
+
+    void remove(int dayKey) {
+        synchronized (this) {
+            flushPendingPuts();
+            boolean isRemoved = false;
+            if (mSnapshot.mDays.indexOfKey(dayKey) >= 0) {
+                Editor editor = edit();
+                editor.remove(dayKey);
+                mSnapshot = editor.build();
+                isRemoved = true;
+            }
+            int index = Arrays.binarySearch(mFileRemoved, dayKey);
+            if (mFile != null && index < 0 && mFile.indexOfKey(dayKey) >= 0) {
+                index = -(index + 1);
+                int[] removed = new int[mFileRemoved.length + 1];
+                System.arraycopy(mFileRemoved, 0, removed, 0, index);
+                removed[index] = dayKey;
+                System.arraycopy(mFileRemoved, index, removed, index + 1, mFileRemoved.length - index);
+                mFileRemoved = removed;
+                isRemoved = true;
+            }
+            if (!isRemoved) {
+                return;
+            }
+        }
+        dispatch(new int[]{dayKey});
+    }
+
+    /**
+     * 当前快照，有暂存的单日写入时先合并
+     */
+    private Snapshot current() {
+        if (hasPendingPuts) {
+            synchronized (this) {
+                flushPendingPuts();
+            }
+        }
+        return mSnapshot;
+    }
+
+    /**
+     * 在当前快照的副本上修改，暂存的单日写入先写入副本，持有this时调用
+     */
+    private Editor edit() {
+        Editor editor = new Editor(mSnapshot);
+        for (Calendar calendar : mPendingPuts) {
+            editor.put(calendar.getDayKey(), calendar);
+        }
+        mPendingPuts.clear();
+        hasPendingPuts = false;
+        return editor;
+    }
+
+    /**
+     * 持有this时调用
+     */
+    private void flushPendingPuts() {
+        if (!mPendingPuts.isEmpty()) {
+            mSnapshot = edit().build();
+        }
+    }
+
+    /**
+     * 比较两个快照，键均有序，按顺序归并
+     *
+     * @param old      旧快照
+     * @param snapshot 新快照
+     */
+    private void diff(SparseArray<Calendar> old, SparseArray<Calendar> snapshot) {
+        final List<Calendar> added = new ArrayList<>();
+        final List<Calendar> changed = new ArrayList<>();
+        final List<Calendar> removed = new ArrayList<>();
+        int[] dayKeys = new int[old.size() + snapshot.size()];
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < old.size() || j < snapshot.size()) {
+            int oldKey = i < old.size() ? old.keyAt(i) : Integer.MAX_VALUE;
+            int newKey = j < snapshot.size() ? snapshot.keyAt(j) : Integer.MAX_VALUE;
+            if (oldKey < newKey) {
+                removed.add(old.valueAt(i++));
+                dayKeys[count++] = oldKey;
+            } else if (oldKey > newKey) {
+                added.add(snapshot.valueAt(j++));
+                dayKeys[count++] = newKey;
+            } else {
+                Calendar calendar = snapshot.valueAt(j++);
+                if (!isSameScheme(old.valueAt(i++), calendar)) {
+                    changed.add(calendar);
+                    dayKeys[count++] = newKey;
+                }
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        dispatch(Arrays.copyOf(dayKeys, count));
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notifyDiff(added, changed, removed);
+            return;
+        }
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                notifyDiff(added, changed, removed);
+            }
+        });
+    }
+
+    /**
+     * 主线程直接回调，其它线程合并后post到主线程
+     *
+     * @param dayKeys 有序的变化日期，null为全部
+     */
+    private void dispatch(int[] dayKeys) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notifyChanged(dayKeys);
+            return;
+        }
+        post(dayKeys);
+    }
+
+    /**
+     * 合并后post到主线程回调
+     *
+     * @param dayKeys 有序的变化日期，null为全部
+     */
+    private void post(int[] dayKeys) {
+        synchronized (this) {
+            if (dayKeys == null) {
+                isPendingAll = true;
+                mPendingDayKeyCount = 0;
+            } else if (!isPendingAll) {
+                if (mPendingDayKeyCount + dayKeys.length > mPendingDayKeys.length) {
+                    mPendingDayKeys = Arrays.copyOf(mPendingDayKeys,
+                            Math.max(mPendingDayKeys.length * 2, mPendingDayKeyCount + dayKeys.length));
+                }
+                System.arraycopy(dayKeys, 0, mPendingDayKeys, mPendingDayKeyCount, dayKeys.length);
+                mPendingDayKeyCount += dayKeys.length;
+            }
+            if (isPosted) {
+                return;
+            }
+            isPosted = true;
+        }
+        mHandler.post(mDispatchRunnable);
+    }
+
+    private void notifyChanged(int[] dayKeys) {
+        if (mListener != null) {
+            mListener.onSchemeChanged(dayKeys);
+        }
+    }
+
+    private void notifyDiff(List<Calendar> added, List<Calendar> changed, List<Calendar> removed) {
+        if (mListener != null) {
+            mListener.onSchemeDiff(added, changed, removed);
+        }
+    }
+
+    /**
+     * 标记文本、颜色、多标记是否相同
+     *
+     * @param a a
+     * @param b b
+     * @return 是否相同
+     */
+    static boolean isSameScheme(Calendar a, Calendar b) {
+        if (a == b) {
+            return true;
+        }
+        if (a.getSchemeColor() != b.getSchemeColor() || !TextUtils.equals(a.getScheme(), b.getScheme())) {
+            return false;
+        }
+        if (a.getSchemeIndexes() != null && b.getSchemeIndexes() != null) {
+            return Arrays.equals(a.getSchemeIndexes(), b.getSchemeIndexes());
+        }
+        int size = a.getSchemesSize();
+        if (size != b.getSchemesSize()) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            Calendar.Scheme x = a.getSchemeAt(i);
+            Calendar.Scheme y = b.getSchemeAt(i);
+            if (x == y) {
+                continue;
+            }
+            if (x == null || y == null ||
+                    x.getType() != y.getType() ||
+                    x.getShcemeColor() != y.getShcemeColor() ||
+                    !TextUtils.equals(x.getScheme(), y.getScheme()) ||
+                    !TextUtils.equals(x.getOther(), y.getOther()) ||
+                    !equals(x.getObj(), y.getObj())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * 兼容以"yyyyMMdd"为键的Map，键不是这种格式时使用Calendar自身的日期
+     *
+     * @param key      key
+     * @param calendar calendar
+     * @return Calendar.getDayKey()
+     */
+    private static int toDayKey(String key, Calendar calendar) {
+        if (key != null && key.length() == 8) {
+            int value = 0;
+            for (int i = 0; i < 8; i++) {
+                char c = key.charAt(i);
+                if (c < '0' || c > '9') {
+                    return calendar == null ? -1 : calendar.getDayKey();
+                }
+                value = value * 10 + (c - '0');
+            }
+            return Calendar.toDayKey(value / 10000, value / 100 % 100, value % 100);
+        }
+        return calendar == null ? -1 : calendar.getDayKey();
+    }
+
+    /**
+     * 按日期键排序，同一天保持原有顺序，无效的键排除
+     *
+     * @param keys   日期键
+     * @param values 对应的日历
+     * @param count  数量
+     * @return 排除后的数量
+     */
+    private static int sort(int[] keys, Calendar[] values, int count) {
+        long[] order = new long[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (keys[i] >= 0) {
+                order[size++] = (long) keys[i] << 32 | i;
+            }
+        }
+        Arrays.sort(order, 0, size);
+        Calendar[] copy = Arrays.copyOf(values, count);
+        for (int i = 0; i < size; i++) {
+            keys[i] = (int) (order[i] >>> 32);
+            values[i] = copy[(int) order[i]];
+        }
+        return size;
+    }
+
+    /**
+     * 有序的日期键去重，同一天保留最后一个
+     *
+     * @return 去重后的数量
+     */
+    private static int unique(int[] keys, Calendar[] values, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size > 0 && keys[size - 1] == keys[i]) {
+                size--;
+            }
+            keys[size] = keys[i];
+            values[size++] = values[i];
+        }
+        return size;
+    }
+
+    /**
+     * 日期键去掉日，即(year << 4) | month
+     */
+    private static int toMonthKey(int dayKey) {
+        return dayKey >> 5;
+    }
+
+    /**
+     * 一天的标记数量，多标记按个数计算
+     */
+    private static int getSchemeCount(Calendar calendar) {
+        if (calendar == null) {
+            return 0;
+        }
+        int size = calendar.getSchemesSize();
+        return size == 0 ? 1 : size;
+    }
+
+    /**
+     * 发布后不可修改的快照
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new SparseArray<Calendar>(0), new SparseArray<int[]>(0));
+
+        /**
+         * 键为Calendar.getDayKey()
+         */
+        final SparseArray<Calendar> mDays;
+
+        /**
+         * 键为toMonthKey，值的下标为日，下标0为整月合计
+         */
+        final SparseArray<int[]> mCounts;
+
+        Snapshot(SparseArray<Calendar> days, SparseArray<int[]> counts) {
+            mDays = days;
+            mCounts = counts;
+        }
+    }
+
+    /**
+     * 快照与标记文件合并后的每月计数，按月从文件中统计，不解码标记
+     */
+    private static final class FileCounts {
+        final Snapshot mSnapshot;
+        final SchemeFile mFile;
+        final int[] mRemoved;
+
+        /**
+         * 已统计的月份，值可以为null
+         */
+        private final SparseArray<int[]> mCounts = new SparseArray<>();
+
+        FileCounts(Snapshot snapshot, SchemeFile file, int[] removed) {
+            mSnapshot = snapshot;
+            mFile = file;
+            mRemoved = removed;
+        }
+
+        synchronized int[] get(int monthKey) {
+            int index = mCounts.indexOfKey(monthKey);
+            if (index >= 0) {
+                return mCounts.valueAt(index);
+            }
+            int[] base = mSnapshot.mCounts.get(monthKey);
+            int[] counts = base == null ? new int[32] : base.clone();
+            int first = monthKey << 5;
+            int last = first | 31;
+            for (int i = mFile.lowerBound(first); i < mFile.size(); i++) {
+                int key = mFile.keyAt(i);
+                if (key > last) {
+                    break;
+                }
+                //快照中的同一天优先，已计入base
+                if (mSnapshot.mDays.get(key) != null || Arrays.binarySearch(mRemoved, key) >= 0) {
+                    continue;
+                }
+                int count = mFile.getSchemeCount(i);
+                counts[key & 31] += count;
+                counts[0] += count;
+            }
+            if (counts[0] == 0) {
+                counts = null;
+            }
+            mCounts.put(monthKey, counts);
+            return counts;
+        }
+    }
+
+    /**
+     * 在旧快照的副本上修改，只复制变化月份的计数
+     */
+    private static final class Editor {
+        private SparseArray<Calendar> mDays;
+        private final SparseArray<int[]> mCounts;
+        private final SparseArray<int[]> mBaseCounts;
+
+        Editor(Snapshot base) {
+            mDays = base.mDays.clone();
+            mCounts = base.mCounts.clone();
+            mBaseCounts = base.mCounts;
+        }
+
+        Calendar get(int dayKey) {
+            return mDays.get(dayKey);
+        }
+
+        void put(int dayKey, Calendar calendar) {
+            Calendar old = mDays.get(dayKey);
+            mDays.put(dayKey, calendar);
+            addCount(dayKey, getSchemeCount(calendar) - getSchemeCount(old));
+        }
+
+        /**
+         * 有序且不重复的批量写入，与现有数据按顺序归并，值为null则移除
+         */
+        void putAll(int[] keys, Calendar[] values, int count) {
+            SparseArray<Calendar> days = new SparseArray<>(mDays.size() + count);
+            int i = 0, j = 0;
+            while (i < mDays.size() || j < count) {
+                int key = i < mDays.size() ? mDays.keyAt(i) : Integer.MAX_VALUE;
+                int newKey = j < count ? keys[j] : Integer.MAX_VALUE;
+                if (key < newKey) {
+                    days.append(key, mDays.valueAt(i++));
+                    continue;
+                }
+                Calendar old = key == newKey ? mDays.valueAt(i++) : null;
+                Calendar calendar = values[j++];
+                if (calendar != null) {
+                    days.append(newKey, calendar);
+                }
+                addCount(newKey, getSchemeCount(calendar) - getSchemeCount(old));
+            }
+            mDays = days;
+        }
+
+        void remove(int dayKey) {
+            Calendar old = mDays.get(dayKey);
+            if (old == null) {
+                return;
+            }
+            mDays.remove(dayKey);
+            addCount(dayKey, -getSchemeCount(old));
+        }
+
+        private void addCount(int dayKey, int delta) {
+            if (delta == 0) {
+                return;
+            }
+            int monthKey = toMonthKey(dayKey);
+            int[] counts = mCounts.get(monthKey);
+            if (counts == null) {
+                counts = new int[32];
+                mCounts.put(monthKey, counts);
+            } else if (counts == mBaseCounts.get(monthKey)) {
+                counts = counts.clone();
+                mCounts.put(monthKey, counts);
+            }
+            counts[dayKey & 31] += delta;
+            counts[0] += delta;
+            if (counts[0] == 0) {
+                mCounts.remove(monthKey);
+            }
+        }
+
+        /**
+         * SparseArray.remove只标记删除，之后第一次size()、keyAt()等才整理数组，
+         * 发布前先整理，发布后的读取不会再修改共享的数组
+         */
+        Snapshot build() {
+            mDays.size();
+            mCounts.size();
+            return new Snapshot(mDays, mCounts);
+        }
+    }
+
+    /**
+     * 标记变化
+     */
+    interface OnSchemeChangeListener {
+        /**
+         * @param dayKeys 有序的Calendar.getDayKey()，null为全部
+         */
+        void onSchemeChanged(int[] dayKeys);
+
+        /**
+         * 整体替换或清空后的差异，在onSchemeChanged之后回调
+         *
+         * @param added   新增的标记
+         * @param changed 变化后的标记
+         * @param removed 被移除的旧标记
+         */
+        void onSchemeDiff(List<Calendar> added, List<Calendar> changed, List<Calendar> removed);
+    }
+}
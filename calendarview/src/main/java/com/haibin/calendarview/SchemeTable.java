@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import android.text.TextUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 多标记共享表
+ * 相同类型、颜色、文本的标记只保存一份，日历项只保存下标数组，
+ * 大量日期重复使用少数几种标记时，不再每天创建Scheme和ArrayList
+ * 表中的Scheme被所有日期共享，不可修改，调用set方法会抛出UnsupportedOperationException
+ */
+final class SchemeTable {
+
+    /**
+     * 共享的标记数量上限，超过后不再共享，退回到每天独立的Scheme
+     */
+    private static final int MAX_SIZE = 4096;
+
+    private static final Map<Key, Integer> INDEXES = new HashMap<>();
+
+    /**
+     * 只追加，扩容时替换引用，读取不需要加锁
+     */
+    private static volatile Calendar.Scheme[] sSchemes = new Calendar.Scheme[16];
+
+    private static int sSize;
+
+    private SchemeTable() {
+    }
+
+    /**
+     * 获取共享标记的下标
+     *
+     * @param type   类型
+     * @param color  颜色
+     * @param scheme 文本
+     * @param other  其它
+     * @return 下标，表已满返回-1
+     */
+    static synchronized int intern(int type, int color, String scheme, String other) {
+        Key key = new Key(type, color, scheme, other);
+        Integer index = INDEXES.get(key);
+        if (index != null) {
+            return index;
+        }
+        if (sSize == MAX_SIZE) {
+            return -1;
+        }
+        Calendar.Scheme[] schemes = sSchemes;
+        if (sSize == schemes.length) {
+            schemes = Arrays.copyOf(schemes, sSize * 2);
+        }
+        schemes[sSize] = new Calendar.Scheme(type, color, scheme, other);
+        sSchemes = schemes;
+        INDEXES.put(key, sSize);
+        return sSize++;
+    }
+
+    static Calendar.Scheme get(int index) {
+        return sSchemes[index];
+    }
+
+    private static final class Key {
+        private final int type;
+        private final int color;
+        private final String scheme;
+        private final String other;
+
+        Key(int type, int color, String scheme, String other) {
+            this.type = type;
+            this.color = color;
+            this.scheme = scheme;
+            this.other = other;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return type == key.type && color == key.color &&
+                    TextUtils.equals(scheme, key.scheme) && TextUtils.equals(other, key.other);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type;
+            result = 31 * result + color;
+            result = 31 * result + (scheme == null ? 0 : scheme.hashCode());
+            result = 31 * result + (other == null ? 0 : other.hashCode());
+            return result;
+        }
+    }
+}
@@ -34,6 +34,46 @@ public final class SolarTermUtil {
      */
     private static  String SOLAR_TERMS[] = null;
 
+    /**
+     * 1900-2099年24节气日期表，由天文算法getSolarTermsByAstronomy预先计算
+     * 每年一个long，按月份顺序从小寒开始，每个节气占2位，表示相对SOLAR_TERM_BASE_DAY的天数
+     */
+    private static final long[] SOLAR_TERM_INFO = {
+            0x5aa665a65a56L,0x6aaaa6aa9a5aL,0xaaaaaabaaa6aL,0xaaabbabbafaaL,0x5aa665a65aabL,0x6aaaa6aa9a5aL,0xaaaaaaaaaa6aL,0xaaabbabbafaaL,0x5aa665a65aabL,0x6aaaa6aa9a5aL,//1900-1909
+            0xaaaaaaaaaa6aL,0xaaabbabbafaaL,0x56a665a65aabL,0x6aa6a6aa9a56L,0xaaaaaaaa9a5aL,0xaaabaabaaeaaL,0x569665a65aaaL,0x6aa6a6a69a56L,0x6aaaaaaa9a5aL,0xaaabaabaaeaaL,//1910-1919
+            0x569665a65aaaL,0x5aa6a6a65a56L,0x6aaaaaaa9a5aL,0xaaabaabaaa6aL,0x569665a65aaaL,0x5aa6a6a65a56L,0x6aaaa6aa9a5aL,0xaaabaabaaa6aL,0x555665a65aaaL,0x5aa665a65a56L,//1920-1929
+            0x6aaaa6aa9a5aL,0xaaaaaabaaa6aL,0x555665665aaaL,0x5aa665a65a56L,0x6aaaa6aa9a5aL,0xaaaaaaaaaa6aL,0x555665665aaaL,0x5aa665a65a56L,0x6aaaa6aa9a5aL,0xaaaaaaaaaa6aL,//1930-1939
+            0x555665665aaaL,0x5aa665a65a56L,0x6aaaa6aa9a5aL,0xaaaaaaaaaa6aL,0x555665655aaaL,0x569665a65a56L,0x6aa6a6aa9a56L,0xaaaaaaaa9a5aL,0x5556556559aaL,0x569665a65a55L,//1940-1949
+            0x6aa6a6a65a56L,0xaaaaaaaa9a5aL,0x5556556559aaL,0x569665a65a55L,0x5aa6a6a65a56L,0x6aaaa6aa9a5aL,0x5556556555aaL,0x569665a65a55L,0x5aa665a65a56L,0x6aaaa6aa9a5aL,//1950-1959
+            0x55555565556aL,0x555665665a55L,0x5aa665a65a56L,0x6aaaa6aa9a5aL,0x55555565556aL,0x555665665a55L,0x5aa665a65a56L,0x6aaaa6aa9a5aL,0x55555555556aL,0x555665665a55L,//1960-1969
+            0x5aa665a65a56L,0x6aaaa6aa9a5aL,0x55555555556aL,0x555665655a55L,0x5aa665a65a56L,0x6aa6a6aa9a5aL,0x55555555456aL,0x555655655a55L,0x5a9665a65a56L,0x6aa6a6a69a5aL,//1970-1979
+            0x55555555456aL,0x555655655a55L,0x569665a65a56L,0x6aa6a6a65a56L,0x55555155455aL,0x555655655955L,0x569665a65a55L,0x5aa6a5a65a56L,0x15555155455aL,0x555555655555L,//1980-1989
+            0x569665665a55L,0x5aa665a65a56L,0x15555155455aL,0x555555655515L,0x555665665a55L,0x5aa665a65a56L,0x15555155455aL,0x555555555515L,0x555665665a55L,0x5aa665a65a56L,//1990-1999
+            0x15555155455aL,0x555555555515L,0x555665665a55L,0x5aa665a65a56L,0x15555155455aL,0x555555555515L,0x555655655a55L,0x5aa665a65a56L,0x15515155455aL,0x555555554515L,//2000-2009
+            0x555655655a55L,0x5a9665a65a56L,0x15515151455aL,0x555551554515L,0x555655655a55L,0x569665a65a56L,0x155151510556L,0x555551554505L,0x555655655955L,0x569665665a55L,//2010-2019
+            0x155110510556L,0x155551554505L,0x555555655555L,0x569665665a55L,0x055110510556L,0x155551554505L,0x555555555515L,0x555665665a55L,0x055110510556L,0x155551554505L,//2020-2029
+            0x555555555515L,0x555665665a55L,0x055110510556L,0x155551554505L,0x555555555515L,0x555655655a55L,0x055110510556L,0x155551554505L,0x555555555515L,0x555655655a55L,//2030-2039
+            0x055110510556L,0x155151514505L,0x555555554515L,0x555655655a55L,0x054110510556L,0x155151510505L,0x555551554515L,0x555655655a55L,0x014110110556L,0x155110510501L,//2040-2049
+            0x555551554505L,0x555555655555L,0x014110110555L,0x155110510501L,0x555551554505L,0x555555555555L,0x014110110555L,0x055110510501L,0x155551554505L,0x555555555555L,//2050-2059
+            0x000110110555L,0x055110510501L,0x155551554505L,0x555555555515L,0x000110110555L,0x055110510501L,0x155551554505L,0x555555555515L,0x000100100555L,0x055110510501L,//2060-2069
+            0x155151514505L,0x555555555515L,0x000100100555L,0x054110510501L,0x155151514505L,0x555551554515L,0x000100100555L,0x054110510501L,0x155150510505L,0x555551554515L,//2070-2079
+            0x000100100555L,0x014110110501L,0x155110510505L,0x555551554505L,0x000000100055L,0x014110110500L,0x155110510501L,0x555551554505L,0x000000000055L,0x014110110500L,//2080-2089
+            0x055110510501L,0x155551554505L,0x000000000055L,0x000110110500L,0x055110510501L,0x155551554505L,0x000000000015L,0x000100110500L,0x055110510501L,0x155551554505L//2090-2099
+    };
+
+    /**
+     * 按月份顺序，从小寒开始，每个节气的最早日期
+     */
+    private static final int[] SOLAR_TERM_BASE_DAY = {
+            4, 19, 3, 18, 4, 19, 4, 19, 4, 20, 4, 20, 6, 22, 6, 22, 6, 22, 7, 22, 6, 21, 6, 21
+    };
+
+    /**
+     * 日期表范围外的年份，最近一次天文算法的结果，按月份顺序从小寒开始
+     */
+    private static int sOutOfTableYear;
+    private static int[] sOutOfTableDays;
+
     /**
      * 每弧度的角秒数
      */
@@ -579,6 +619,103 @@ public final class SolarTermUtil {
      */
 
     public static String[] getSolarTerms(int year) {
+        if (!isInTable(year)) {
+            return getSolarTermsByAstronomy(year);
+        }
+        String[] solarTerms = new String[24];
+        for (int i = 0; i < 24; i++) {
+            int index = (i + 19) % 24;//SOLAR_TERMS下标
+            int day = getTermDay(year, i);
+            solarTerms[(index + 3) % 24] = year +
+                    (i < 18 ? "0" : "") + (i / 2 + 1) +
+                    (day < 10 ? "0" : "") + day + SOLAR_TERMS[index];
+        }
+        return solarTerms;
+    }
+
+    /**
+     * 获取某天的节气，1900-2099年直接查表
+     *
+     * @param year  年
+     * @param month 月
+     * @param day   日
+     * @return 节气在R.array.solar_term中的下标，不是节气返回-1
+     */
+    static int getSolarTermIndex(int year, int month, int day) {
+        int first = (month - 1) * 2;
+        int firstDay, secondDay;
+        if (isInTable(year)) {
+            firstDay = getTermDay(year, first);
+            secondDay = getTermDay(year, first + 1);
+        } else {
+            int[] days = getOutOfTableDays(year);
+            firstDay = days[first];
+            secondDay = days[first + 1];
+        }
+        if (day == firstDay) {
+            return (first + 19) % 24;
+        }
+        if (day == secondDay) {
+            return (first + 20) % 24;
+        }
+        return -1;
+    }
+
+    /**
+     * 节气名称
+     *
+     * @param index 节气下标
+     * @return 节气名称
+     */
+    static String getSolarTermName(int index) {
+        return SOLAR_TERMS[index];
+    }
+
+    private static boolean isInTable(int year) {
+        return year >= CalendarViewDelegate.MIN_YEAR && year <= CalendarViewDelegate.MAX_YEAR;
+    }
+
+    /**
+     * 查表获取节气日期
+     *
+     * @param year 年
+     * @param term 按月份顺序的节气，0为小寒
+     * @return 节气在当月的日期
+     */
+    private static int getTermDay(int year, int term) {
+        long info = SOLAR_TERM_INFO[year - CalendarViewDelegate.MIN_YEAR];
+        return SOLAR_TERM_BASE_DAY[term] + (int) ((info >>> (term * 2)) & 0x3);
+    }
+
+    /**
+     * 日期表范围外的年份使用天文算法，只保留最近一年的结果
+     *
+     * @param year 年
+     * @return 按月份顺序的节气日期
+     */
+    private static synchronized int[] getOutOfTableDays(int year) {
+        if (sOutOfTableDays != null && sOutOfTableYear == year) {
+            return sOutOfTableDays;
+        }
+        int[] days = new int[24];
+        for (String term : getSolarTermsByAstronomy(year)) {
+            int month = Integer.parseInt(term.substring(4, 6));
+            int day = Integer.parseInt(term.substring(6, 8));
+            int first = (month - 1) * 2;
+            days[days[first] == 0 || days[first] > day ? first : first + 1] = day;
+        }
+        sOutOfTableYear = year;
+        sOutOfTableDays = days;
+        return days;
+    }
+
+    /**
+     * 天文算法计算某一年24节气，用于日期表范围外的年份以及校验日期表
+     *
+     * @param year 年
+     * @return 24节气
+     */
+    static String[] getSolarTermsByAstronomy(int year) {
         String[] solarTerms = new String[24];
         String[] preOffset = getSolarTermsPreOffset(year - 1);
         String[] nextOffset = getSolarTermsNextOffset(year - 1);
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2016 huanghaibin_dev <huanghaibin_dev@163.com>
+ * WebSite https://github.com/MiracleTimes-Dev
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haibin.calendarview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 跨天事件区间索引，创建后不可修改
+ * 按开始日期排序的数组隐式构成平衡二叉树，每个节点记录子树的最大结束日期，
+ * 查询某页的日期区间时跳过不可能相交的子树，复杂度O(log n + k)
+ */
+final class SpanIndex {
+
+    static final SpanIndex EMPTY = new SpanIndex(new CalendarSpan[0], new int[0], new int[0]);
+
+    private final CalendarSpan[] mSpans;
+
+    /**
+     * 开始、结束日期，CalendarUtil.toDayNumber
+     */
+    private final int[] mStarts, mEnds;
+
+    /**
+     * 以该节点为根的子树中最大的结束日期
+     */
+    private final int[] mMaxEnds;
+
+    private SpanIndex(CalendarSpan[] spans, int[] starts, int[] ends) {
+        mSpans = spans;
+        mStarts = starts;
+        mEnds = ends;
+        mMaxEnds = new int[spans.length];
+        buildMaxEnd(0, spans.length - 1);
+    }
+
+    /**
+     * 创建索引，忽略起止日期缺失或结束早于开始的事件
+     *
+     * @param spans 跨天事件
+     * @return 索引
+     */
+    static SpanIndex build(List<CalendarSpan> spans) {
+        if (spans == null || spans.size() == 0) {
+            return EMPTY;
+        }
+        final int[] starts = new int[spans.size()];
+        final int[] ends = new int[spans.size()];
+        List<Integer> order = new ArrayList<>(spans.size());
+        for (int i = 0; i < spans.size(); i++) {
+            CalendarSpan span = spans.get(i);
+            if (span == null || span.getStart() == null || span.getEnd() == null) {
+                continue;
+            }
+            starts[i] = CalendarUtil.toDayNumber(span.getStart());
+            ends[i] = CalendarUtil.toDayNumber(span.getEnd());
+            if (ends[i] >= starts[i]) {
+                order.add(i);
+            }
+        }
+        //开始早的在前，同一天开始的长的在前，分配泳道时长事件靠上
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (starts[a] != starts[b]) {
+                    return starts[a] < starts[b] ? -1 : 1;
+                }
+                return ends[a] == ends[b] ? 0 : (ends[a] > ends[b] ? -1 : 1);
+            }
+        });
+        CalendarSpan[] sortedSpans = new CalendarSpan[order.size()];
+        int[] sortedStarts = new int[order.size()];
+        int[] sortedEnds = new int[order.size()];
+        for (int i = 0; i < order.size(); i++) {
+            int index = order.get(i);
+            sortedSpans[i] = spans.get(index);
+            sortedStarts[i] = starts[index];
+            sortedEnds[i] = ends[index];
+        }
+        return new SpanIndex(sortedSpans, sortedStarts, sortedEnds);
+    }
+
+    int size() {
+        return mSpans.length;
+    }
+
+    /**
+     * 查询与日期区间相交的事件
+     *
+     * @param start 开始日期，CalendarUtil.toDayNumber
+     * @param end   结束日期，包含
+     * @param out   按开始日期有序的下标
+     */
+    void query(int start, int end, List<Integer> out) {
+        query(0, mSpans.length - 1, start, end, out);
+    }
+
+    /**
+     * 为一页日历计算事件的泳道和每行的线段，整页只计算一次，
+     * 同一事件跨行时泳道不变，保证各行线段能连成一条
+     *
+     * @param firstDay 第一个日历项，CalendarUtil.toDayNumber
+     * @param rowCount 行数，每行7天
+     * @return 线段
+     */
+    List<Segment> layout(int firstDay, int rowCount) {
+        List<Integer> indexes = new ArrayList<>();
+        query(firstDay, firstDay + rowCount * 7 - 1, indexes);
+        List<Segment> segments = new ArrayList<>(indexes.size());
+        if (indexes.isEmpty()) {
+            return segments;
+        }
+        int[] laneEnds = new int[4];
+        int laneCount = 0;
+        for (int index : indexes) {
+            int start = mStarts[index];
+            int end = mEnds[index];
+            int lane = 0;
+            while (lane < laneCount && laneEnds[lane] >= start) {
+                lane++;
+            }
+            if (lane == laneCount) {
+                if (laneCount == laneEnds.length) {
+                    laneEnds = Arrays.copyOf(laneEnds, laneCount * 2);
+                }
+                laneCount++;
+            }
+            laneEnds[lane] = end;
+            for (int row = 0; row < rowCount; row++) {
+                int rowStart = firstDay + row * 7;
+                int segmentStart = Math.max(start, rowStart);
+                int segmentEnd = Math.min(end, rowStart + 6);
+                if (segmentStart > segmentEnd) {
+                    continue;
+                }
+                Segment segment = new Segment();
+                segment.span = mSpans[index];
+                segment.row = row;
+                segment.startColumn = segmentStart - rowStart;
+                segment.endColumn = segmentEnd - rowStart;
+                segment.lane = lane;
+                segment.isStart = segmentStart == start;
+                segment.isEnd = segmentEnd == end;
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    private void query(int lo, int hi, int start, int end, List<Integer> out) {
+        if (lo > hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (mMaxEnds[mid] < start) {
+            return;
+        }
+        query(lo, mid - 1, start, end, out);
+        //右子树开始日期都不早于mid
+        if (mStarts[mid] > end) {
+            return;
+        }
+        if (mEnds[mid] >= start) {
+            out.add(mid);
+        }
+        query(mid + 1, hi, start, end, out);
+    }
+
+    private int buildMaxEnd(int lo, int hi) {
+        if (lo > hi) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        int max = Math.max(mEnds[mid], Math.max(buildMaxEnd(lo, mid - 1), buildMaxEnd(mid + 1, hi)));
+        mMaxEnds[mid] = max;
+        return max;
+    }
+
+    /**
+     * 事件在一行内的线段
+     */
+    static final class Segment {
+        CalendarSpan span;
+
+        /**
+         * 行
+         */
+        int row;
+
+        /**
+         * 起止列，包含
+         */
+        int startColumn, endColumn;
+
+        /**
+         * 泳道，0在最上
+         */
+        int lane;
+
+        /**
+         * 是否为事件的第一天、最后一天，否则事件延续到上一行、下一行
+         */
+        boolean isStart, isEnd;
+    }
+}
@@ -40,6 +40,7 @@ public abstract class WeekView extends BaseWeekView {
             return;
         mItemWidth = (getWidth() - 2 * mDelegate.getCalendarPadding()) / 7;
         onPreviewHook();
+        drawSpans(canvas);
 
         for (int i = 0; i < mItems.size(); i++) {
             int x = i * mItemWidth + mDelegate.getCalendarPadding();
@@ -77,7 +78,7 @@ public abstract class WeekView extends BaseWeekView {
             return;
         }
         if (onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, true);
+            mDelegate.onCalendarInterceptClick(calendar, true);
             return;
         }
         if (!isInRange(calendar)) {
@@ -117,7 +118,7 @@ public abstract class WeekView extends BaseWeekView {
             return false;
         }
         if (onCalendarIntercept(calendar)) {
-            mDelegate.mCalendarInterceptListener.onCalendarInterceptClick(calendar, true);
+            mDelegate.onCalendarInterceptClick(calendar, true);
             return true;
         }
         boolean isCalendarInRange = isInRange(calendar);
@@ -27,6 +27,7 @@ import androidx.viewpager.widget.PagerAdapter;
 import androidx.viewpager.widget.ViewPager;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -50,6 +51,21 @@ public final class WeekViewPager extends ViewPager {
      */
     private boolean isUsingScrollToCalendar = false;
 
+    /**
+     * 回收的周视图数量上限
+     */
+    private static final int MAX_RECYCLED_VIEWS = 3;
+
+    /**
+     * 移出的周视图，重新绑定日期后复用，避免每次创建视图和画笔
+     */
+    private final List<BaseWeekView> mRecycledViews = new ArrayList<>();
+
+    /**
+     * 缓存周视图的构造函数，避免每次反射查找
+     */
+    private Constructor<?> mWeekViewConstructor;
+
     public WeekViewPager(Context context) {
         this(context, null);
     }
@@ -81,6 +97,12 @@ public final class WeekViewPager extends ViewPager {
 
             @Override
             public void onPageSelected(int position) {
+                Calendar first = CalendarUtil.getFirstCalendarStartWithMinCalendar(mDelegate.getMinYear(),
+                        mDelegate.getMinYearMonth(),
+                        mDelegate.getMinYearDay(),
+                        position + 1,
+                        mDelegate.getWeekStart());
+                mDelegate.setSchemeWindow(SchemeLoader.WINDOW_WEEK, first.getYear(), first.getMonth(), 1, 1);
                 //默认的显示星期四，周视图切换就显示星期4
                 if (getVisibility() != VISIBLE) {
                     isUsingScrollToCalendar = false;
@@ -140,6 +162,7 @@ public final class WeekViewPager extends ViewPager {
      * 更新周视图布局
      */
     void updateWeekViewClass() {
+        clearRecycledViews();
         isUpdateWeekView = true;
         notifyAdapterDataSetChanged();
         isUpdateWeekView = false;
@@ -309,6 +332,28 @@ public final class WeekViewPager extends ViewPager {
         }
     }
 
+    /**
+     * 更新跨天事件
+     */
+    void updateSpans() {
+        for (int i = 0; i < getChildCount(); i++) {
+            BaseWeekView view = (BaseWeekView) getChildAt(i);
+            view.updateSpans();
+        }
+    }
+
+    /**
+     * 只更新包含指定日期的周
+     *
+     * @param dayKeys 有序的Calendar.getDayKey()
+     */
+    void updateSchemes(int[] dayKeys) {
+        for (int i = 0; i < getChildCount(); i++) {
+            BaseWeekView view = (BaseWeekView) getChildAt(i);
+            view.updateSchemes(dayKeys);
+        }
+    }
+
     /**
      * 更新当前日期，夜间过度的时候调用这个函数，一般不需要调用
      */
@@ -398,6 +443,33 @@ public final class WeekViewPager extends ViewPager {
         }
     }
 
+    /**
+     * 销毁回收的周视图
+     */
+    private void clearRecycledViews() {
+        for (BaseWeekView view : mRecycledViews) {
+            view.onDestroy();
+        }
+        mRecycledViews.clear();
+        mWeekViewConstructor = null;
+    }
+
+    /**
+     * 创建周视图，优先使用工厂，否则反射创建
+     *
+     * @return 周视图
+     * @throws Exception 反射异常
+     */
+    private BaseWeekView createWeekView() throws Exception {
+        if (mDelegate.mWeekViewFactory != null) {
+            return mDelegate.mWeekViewFactory.createWeekView(getContext());
+        }
+        if (mWeekViewConstructor == null) {
+            mWeekViewConstructor = mDelegate.getWeekViewClass().getConstructor(Context.class);
+        }
+        return (BaseWeekView) mWeekViewConstructor.newInstance(getContext());
+    }
+
     private void notifyAdapterDataSetChanged() {
         if (getAdapter() == null) {
             return;
@@ -454,15 +526,21 @@ public final class WeekViewPager extends ViewPager {
                     position + 1,
                     mDelegate.getWeekStart());
             BaseWeekView view;
-            try {
-                Constructor constructor = mDelegate.getWeekViewClass().getConstructor(Context.class);
-                view = (BaseWeekView) constructor.newInstance(getContext());
-            } catch (Exception e) {
-                e.printStackTrace();
-                return new DefaultWeekView(getContext());
+            if (!mRecycledViews.isEmpty()) {
+                view = mRecycledViews.remove(mRecycledViews.size() - 1);
+                //回收期间样式可能已改变
+                view.updateStyle();
+                view.updateItemHeight();
+            } else {
+                try {
+                    view = createWeekView();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    return new DefaultWeekView(getContext());
+                }
+                view.mParentLayout = mParentLayout;
+                view.setup(mDelegate);
             }
-            view.mParentLayout = mParentLayout;
-            view.setup(mDelegate);
             view.setup(calendar);
             view.setTag(position);
             view.setSelectedCalendar(mDelegate.mSelectedCalendar);
@@ -473,8 +551,14 @@ public final class WeekViewPager extends ViewPager {
         @Override
         public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
             BaseWeekView view = (BaseWeekView) object;
-            view.onDestroy();
+            if (isUpdateWeekView || mRecycledViews.size() >= MAX_RECYCLED_VIEWS) {
+                view.onDestroy();
+                container.removeView(view);
+                return;
+            }
             container.removeView(view);
+            view.resetState();
+            mRecycledViews.add(view);
         }
     }
 }
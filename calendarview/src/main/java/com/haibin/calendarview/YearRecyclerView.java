@@ -110,6 +110,18 @@ public final class YearRecyclerView extends RecyclerView {
         }
     }
 
+    /**
+     * 只更新包含指定日期的月份
+     *
+     * @param dayKeys 有序的Calendar.getDayKey()
+     */
+    final void updateSchemes(int[] dayKeys) {
+        for (int i = 0; i < getChildCount(); i++) {
+            YearView view = (YearView) getChildAt(i);
+            view.updateSchemes(dayKeys);
+        }
+    }
+
     /**
      * 月份选择事件
      *
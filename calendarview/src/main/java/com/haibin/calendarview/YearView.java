@@ -20,12 +20,13 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
-import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.View;
 
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -112,6 +113,16 @@ public abstract class YearView extends View {
      */
     List<Calendar> mItems;
 
+    /**
+     * 日历项复用池
+     */
+    private final Calendar[] mCalendarPool = new Calendar[42];
+
+    /**
+     * 热力图模式下本月每天的标记数量，下标为日
+     */
+    private int[] mDayCounts;
+
     /**
      * 每一项的高度
      */
@@ -280,11 +291,17 @@ public abstract class YearView extends View {
         mNextDiff = CalendarUtil.getMonthEndDiff(mYear, mMonth, mDelegate.getWeekStart());
         int preDiff = CalendarUtil.getMonthViewStartDiff(mYear, mMonth, mDelegate.getWeekStart());
 
-        mItems = CalendarUtil.initCalendarForMonthView(mYear, mMonth, mDelegate.getCurrentDay(), mDelegate.getWeekStart());
+        if (mItems == null) {
+            mItems = new ArrayList<>(mCalendarPool.length);
+        }
+        mDelegate.mMonthModelCache.fillMonth(mDelegate, mYear, mMonth, mCalendarPool, mItems);
 
         mLineCount = 6;
-        addSchemesFromMap();
-
+        if (mDelegate.getYearViewHeatmapLevel() > 0) {
+            mDayCounts = mDelegate.mSchemeStore.getDayCounts(mYear, mMonth);
+        } else {
+            addSchemesFromMap();
+        }
     }
 
     /**
@@ -325,23 +342,29 @@ public abstract class YearView extends View {
      * 添加事件标记，来自Map
      */
     private void addSchemesFromMap() {
-        if (mDelegate.mSchemeDatesMap == null || mDelegate.mSchemeDatesMap.size() == 0) {
+        mDelegate.addSchemesFromMap(mItems);
+    }
+
+    /**
+     * 只更新指定日期的标记，不包含这些日期则不重绘
+     *
+     * @param dayKeys 有序的Calendar.getDayKey()
+     */
+    final void updateSchemes(int[] dayKeys) {
+        if (mDelegate.getYearViewHeatmapLevel() > 0) {
+            int start = Calendar.toDayKey(mYear, mMonth, 0);
+            int index = Arrays.binarySearch(dayKeys, start);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (index < dayKeys.length && dayKeys[index] <= Calendar.toDayKey(mYear, mMonth, 31)) {
+                mDayCounts = mDelegate.mSchemeStore.getDayCounts(mYear, mMonth);
+                invalidate();
+            }
             return;
         }
-        for (Calendar a : mItems) {
-            if (mDelegate.mSchemeDatesMap.containsKey(a.toString())) {
-                Calendar d = mDelegate.mSchemeDatesMap.get(a.toString());
-                if(d == null){
-                    continue;
-                }
-                a.setScheme(TextUtils.isEmpty(d.getScheme()) ? mDelegate.getSchemeText() : d.getScheme());
-                a.setSchemeColor(d.getSchemeColor());
-                a.setSchemes(d.getSchemes());
-            } else {
-                a.setScheme("");
-                a.setSchemeColor(0);
-                a.setSchemes(null);
-            }
+        if (mDelegate.updateSchemes(mItems, dayKeys)) {
+            invalidate();
         }
     }
 
@@ -447,7 +470,9 @@ public abstract class YearView extends View {
         int y = i * mItemHeight + getMonthViewTop();
 
         boolean isSelected = calendar.equals(mDelegate.mSelectedCalendar);
-        boolean hasScheme = calendar.hasScheme();
+        boolean isHeatmap = mDelegate.getYearViewHeatmapLevel() > 0;
+        int count = isHeatmap && mDayCounts != null ? mDayCounts[calendar.getDay()] : 0;
+        boolean hasScheme = isHeatmap ? count > 0 : calendar.hasScheme();
 
         if (hasScheme) {
             //标记的日子
@@ -455,7 +480,11 @@ public abstract class YearView extends View {
             if (isSelected) {
                 isDrawSelected = onDrawSelected(canvas, calendar, x, y, true);
             }
-            if (isDrawSelected || !isSelected) {
+            if (isHeatmap) {
+                if (isDrawSelected || !isSelected) {
+                    onDrawHeatmap(canvas, calendar, x, y, count);
+                }
+            } else if (isDrawSelected || !isSelected) {
                 //将画笔设置为标记颜色
                 mSchemePaint.setColor(calendar.getSchemeColor() != 0 ? calendar.getSchemeColor() : mDelegate.getSchemeThemeColor());
                 onDrawScheme(canvas, calendar, x, y);
@@ -530,6 +559,23 @@ public abstract class YearView extends View {
     protected abstract void onDrawScheme(Canvas canvas, Calendar calendar, int x, int y);
 
 
+    /**
+     * 热力图模式下绘制有标记的日期，默认按数量调整标记主题色的透明度
+     *
+     * @param canvas   canvas
+     * @param calendar 日历calendar，热力图模式下不含标记数据
+     * @param x        日历Card x起点坐标
+     * @param y        日历Card y起点坐标
+     * @param count    当天的标记数量
+     */
+    protected void onDrawHeatmap(Canvas canvas, Calendar calendar, int x, int y, int count) {
+        int level = mDelegate.getYearViewHeatmapLevel();
+        int color = mDelegate.getSchemeThemeColor();
+        mSchemePaint.setColor(color);
+        mSchemePaint.setAlpha(Color.alpha(color) * Math.min(count, level) / level);
+        canvas.drawRect(x, y, x + mItemWidth, y + mItemHeight, mSchemePaint);
+    }
+
     /**
      * 绘制日历文本
      *
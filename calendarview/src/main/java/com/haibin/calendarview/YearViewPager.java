@@ -83,6 +83,23 @@ public final class YearViewPager extends ViewPager {
                 container.removeView((View) object);
             }
         });
+        addOnPageChangeListener(new OnPageChangeListener() {
+            @Override
+            public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+
+            }
+
+            @Override
+            public void onPageSelected(int position) {
+                //保留前后一年，以及前后一年首尾月份显示的相邻月份日期
+                mDelegate.setSchemeWindow(SchemeLoader.WINDOW_YEAR, position + mDelegate.getMinYear(), 1, 13, 24);
+            }
+
+            @Override
+            public void onPageScrollStateChanged(int state) {
+
+            }
+        });
         setCurrentItem(mDelegate.getCurrentDay().getYear() - mDelegate.getMinYear());
     }
 
@@ -141,6 +158,18 @@ public final class YearViewPager extends ViewPager {
     }
 
 
+    /**
+     * 只更新包含指定日期的年份
+     *
+     * @param dayKeys 有序的Calendar.getDayKey()
+     */
+    final void updateSchemes(int[] dayKeys) {
+        for (int i = 0; i < getChildCount(); i++) {
+            YearRecyclerView view = (YearRecyclerView) getChildAt(i);
+            view.updateSchemes(dayKeys);
+        }
+    }
+
     /**
      * 更新周起始
      */